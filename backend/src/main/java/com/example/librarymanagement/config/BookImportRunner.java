@@ -0,0 +1,91 @@
+package com.example.librarymanagement.config;
+
+import com.example.librarymanagement.dto.ImportResult;
+import com.example.librarymanagement.service.BookImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 命令行批量导入，导入完成后退出：
+ * java -jar library-management-0.0.1-SNAPSHOT-exec.jar --spring.main.web-application-type=none
+ *      --library.import.file=books.csv [--library.import.format=ndjson]
+ * 进度写入 <file>.checkpoint，失败后用同样的命令重跑即从断点续传，成功后删除断点文件。
+ */
+@Component
+@Order(100)
+@ConditionalOnProperty(name = "library.import.file")
+public class BookImportRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportRunner.class);
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${library.import.file}")
+    private String file;
+
+    @Value("${library.import.format:}")
+    private String format;
+
+    @Override
+    public void run(String... args) throws Exception {
+        Path input = Path.of(file);
+        Path checkpoint = Path.of(file + ".checkpoint");
+        long resumeFrom = readCheckpoint(checkpoint);
+        if (resumeFrom > 0) {
+            logger.info("Resuming import of " + input + " after line " + resumeFrom);
+        }
+        BookImportService.Format importFormat = BookImportService.parseFormat(
+                format.isEmpty() ? null : format, file.endsWith(".ndjson") || file.endsWith(".jsonl") ? "json" : "csv");
+
+        ImportResult result;
+        try (InputStream in = Files.newInputStream(input)) {
+            result = bookImportService.importBooks(in, importFormat, resumeFrom, line -> writeCheckpoint(checkpoint, line));
+        }
+        result.getErrors().forEach(error -> logger.warn("Rejected " + error));
+        if (result.isCompleted()) {
+            Files.deleteIfExists(checkpoint);
+        } else {
+            logger.error("Import stopped: " + result.getFailure() + ". Re-run the same command to resume after line "
+                    + result.getLastCommittedLine());
+        }
+        int exitCode = SpringApplication.exit(applicationContext, () -> result.isCompleted() ? 0 : 1);
+        System.exit(exitCode);
+    }
+
+    private static long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(checkpoint, StandardCharsets.UTF_8).trim());
+    }
+
+    private static void writeCheckpoint(Path checkpoint, long line) {
+        try {
+            // 先写临时文件再原子替换，进程中途被杀也不会留下半截断点
+            Path tmp = Path.of(checkpoint + ".tmp");
+            Files.writeString(tmp, Long.toString(line), StandardCharsets.UTF_8);
+            Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write checkpoint " + checkpoint, e);
+        }
+    }
+}
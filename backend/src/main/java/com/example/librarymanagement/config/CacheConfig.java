@@ -0,0 +1,49 @@
+package com.example.librarymanagement.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String BOOKS = "books";
+    public static final String USERS = "users";
+    public static final String USERS_BY_USERNAME = "usersByUsername";
+
+    @Value("${library.cache.books.max-size:100000}")
+    private long booksMaxSize;
+
+    @Value("${library.cache.users.max-size:100000}")
+    private long usersMaxSize;
+
+    @Value("${library.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(BOOKS, build(booksMaxSize));
+        cacheManager.registerCustomCache(USERS, build(usersMaxSize));
+        cacheManager.registerCustomCache(USERS_BY_USERNAME, build(usersMaxSize));
+        // 事务内的写入和失效推迟到提交之后，避免并发读把旧值重新放回缓存
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> build(long maxSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+}
@@ -5,10 +5,14 @@ import org.springframework.stereotype.Component;
 import com.example.librarymanagement.repository.BookRepository;
 import com.example.librarymanagement.repository.UserRepository;
 import com.example.librarymanagement.entity.User;
+import com.example.librarymanagement.service.BookService;
+import com.example.librarymanagement.service.BorrowingService;
+import com.example.librarymanagement.service.LibraryStatistics;
+import com.example.librarymanagement.service.PasswordHasher;
+import com.example.librarymanagement.service.RecommendationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.mindrot.jbcrypt.BCrypt;
 import java.time.LocalDateTime;
 
 @Component
@@ -22,6 +26,21 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired(required = false)
     private UserRepository userRepository;
 
+    @Autowired(required = false)
+    private BookService bookService;
+
+    @Autowired(required = false)
+    private BorrowingService borrowingService;
+
+    @Autowired(required = false)
+    private LibraryStatistics libraryStatistics;
+
+    @Autowired(required = false)
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
     @Override
     public void run(String... args) throws Exception {
         try {
@@ -48,7 +67,7 @@ public class DataInitializer implements CommandLineRunner {
                     if (userRepository.findByUsername("admin") == null) {
                         User admin = new User();
                         admin.setUsername("admin");
-                        admin.setPassword(BCrypt.hashpw("password", BCrypt.gensalt()));
+                        admin.setPassword(passwordHasher.hash("password"));
                         admin.setRole(User.Role.ADMIN);
                         admin.setStatus(User.Status.ACTIVE);
                         admin.setCreatedAt(LocalDateTime.now());
@@ -61,7 +80,7 @@ public class DataInitializer implements CommandLineRunner {
                     if (userRepository.findByUsername("student1") == null) {
                         User student = new User();
                         student.setUsername("student1");
-                        student.setPassword(BCrypt.hashpw("password", BCrypt.gensalt()));
+                        student.setPassword(passwordHasher.hash("password"));
                         student.setRole(User.Role.STUDENT);
                         student.setStatus(User.Status.ACTIVE);
                         student.setCreatedAt(LocalDateTime.now());
@@ -74,7 +93,7 @@ public class DataInitializer implements CommandLineRunner {
                     if (userRepository.findByUsername("teacher1") == null) {
                         User teacher = new User();
                         teacher.setUsername("teacher1");
-                        teacher.setPassword(BCrypt.hashpw("password", BCrypt.gensalt()));
+                        teacher.setPassword(passwordHasher.hash("password"));
                         teacher.setRole(User.Role.TEACHER);
                         teacher.setStatus(User.Status.ACTIVE);
                         teacher.setCreatedAt(LocalDateTime.now());
@@ -87,5 +106,54 @@ public class DataInitializer implements CommandLineRunner {
         } catch (Exception e) {
             logger.error("Error initializing data: " + e.getMessage(), e);
         }
+
+        // 构建图书检索的内存索引
+        try {
+            if (bookService != null) {
+                bookService.rebuildSearchIndex();
+                logger.info("Book search index built");
+            }
+        } catch (Exception e) {
+            logger.error("Error building search index: " + e.getMessage(), e);
+        }
+
+        // 构建未归还借阅的应还日期索引
+        try {
+            if (borrowingService != null) {
+                borrowingService.rebuildDueDateIndex();
+                logger.info("Due date index built");
+            }
+        } catch (Exception e) {
+            logger.error("Error building due date index: " + e.getMessage(), e);
+        }
+
+        // 构建热门图书 Top-K 统计
+        try {
+            if (borrowingService != null) {
+                borrowingService.rebuildPopularBooksTracker();
+                logger.info("Popular books tracker built");
+            }
+        } catch (Exception e) {
+            logger.error("Error building popular books tracker: " + e.getMessage(), e);
+        }
+
+        // 构建借阅共现推荐索引
+        try {
+            if (recommendationService != null) {
+                recommendationService.rebuild();
+            }
+        } catch (Exception e) {
+            logger.error("Error building co-borrowing index: " + e.getMessage(), e);
+        }
+
+        // 初始化统计计数器
+        try {
+            if (libraryStatistics != null) {
+                libraryStatistics.reconcile();
+                logger.info("Statistics snapshot initialized");
+            }
+        } catch (Exception e) {
+            logger.error("Error initializing statistics: " + e.getMessage(), e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.example.librarymanagement.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * 启动时执行版本化迁移，并让 JPA 等待迁移完成后再初始化。
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.migration.enabled", havingValue = "true")
+public class MigrationConfig {
+
+    @Bean(initMethod = "migrate")
+    public SchemaMigrator schemaMigrator(DataSource dataSource,
+                                         @Value("${library.migration.location:classpath:db/migration}") String location) {
+        return new SchemaMigrator(dataSource, location);
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor schemaMigratorDependsOn() {
+        return new EntityManagerFactoryDependsOnPostProcessor("schemaMigrator");
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.librarymanagement.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * 读写分离路由：经 ReplicaReads 显式标记的只读事务走只读副本，其余全部走主库。
+ * 副本取连接失败时回退主库，并在 retryAfterMs 内不再尝试副本。
+ * 需包在 LazyConnectionDataSourceProxy 里使用，保证事务的只读标记在取连接前已经设置。
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private final DataSource primary;
+    private final long retryAfterMs;
+    private volatile long replicaDownUntil = 0;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long retryAfterMs) {
+        this.primary = primary;
+        this.retryAfterMs = retryAfterMs;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (ReplicaReads.isActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && System.currentTimeMillis() >= replicaDownUntil) {
+            return REPLICA;
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target == primary) {
+            return primary.getConnection();
+        }
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            replicaDownUntil = System.currentTimeMillis() + retryAfterMs;
+            logger.warn("Replica unavailable, routing reads to primary for " + retryAfterMs + " ms: " + e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.librarymanagement.config;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * 显式声明可以读副本的报表查询：在只读事务中执行，并在事务开始前打上标记，
+ * ReadWriteRoutingDataSource 只把带标记的只读事务路由到副本。
+ * Spring Data 仓库方法自带的 readOnly 事务（findById、findAll、count 等）不带标记，仍走主库。
+ */
+@Component
+public class ReplicaReads {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public ReplicaReads(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * 在允许读副本的只读事务中执行 query；已处于外层事务中时加入外层事务，连接沿用外层的
+     */
+    public <T> T execute(Supplier<T> query) {
+        Boolean previous = ACTIVE.get();
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return readOnlyTransactionTemplate.execute(status -> query.get());
+        } finally {
+            if (previous == null) {
+                ACTIVE.remove();
+            } else {
+                ACTIVE.set(previous);
+            }
+        }
+    }
+
+    static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+}
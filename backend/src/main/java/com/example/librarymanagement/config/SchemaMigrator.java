@@ -0,0 +1,164 @@
+package com.example.librarymanagement.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 版本化增量迁移：按版本号顺序执行 db/migration/V{版本}__{描述}.sql 中尚未执行的脚本，
+ * 执行记录（含校验和）写入 schema_version。已执行脚本被修改时拒绝启动。
+ * 在 EntityManagerFactory 之前运行，重启只做“检查版本表”这一次查询。
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final String LOCK_NAME = "library_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 300;
+
+    private final DataSource dataSource;
+    private final String location;
+
+    public SchemaMigrator(DataSource dataSource, String location) {
+        this.dataSource = dataSource;
+        this.location = location;
+    }
+
+    /**
+     * 返回本次执行的迁移数。
+     */
+    public int migrate() {
+        List<Migration> migrations = load();
+        try (Connection connection = dataSource.getConnection()) {
+            // 多节点同时滚动重启时只允许一个节点迁移（MySQL 命名锁，其他数据库跳过）
+            boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+            JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (mysql) {
+                Integer locked = jdbc.queryForObject("SELECT GET_LOCK(?, ?)", Integer.class, LOCK_NAME, LOCK_TIMEOUT_SECONDS);
+                if (locked == null || locked != 1) {
+                    throw new IllegalStateException("Timed out waiting for schema migration lock");
+                }
+            }
+            try {
+                return apply(connection, jdbc, migrations);
+            } finally {
+                if (mysql) {
+                    jdbc.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Schema migration failed", e);
+        }
+    }
+
+    private int apply(Connection connection, JdbcTemplate jdbc, List<Migration> migrations) {
+        jdbc.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                + "version INT PRIMARY KEY, "
+                + "description VARCHAR(200) NOT NULL, "
+                + "checksum VARCHAR(64) NOT NULL, "
+                + "installed_at DATETIME NOT NULL, "
+                + "execution_ms BIGINT NOT NULL)");
+        Map<Integer, String> applied = new TreeMap<>();
+        for (Map<String, Object> row : jdbc.queryForList("SELECT version, checksum FROM schema_version")) {
+            applied.put(((Number) row.get("version")).intValue(), (String) row.get("checksum"));
+        }
+        int count = 0;
+        for (Migration migration : migrations) {
+            String checksum = applied.get(migration.version);
+            if (checksum != null) {
+                if (!checksum.equals(migration.checksum)) {
+                    throw new IllegalStateException("Migration V" + migration.version
+                            + " was modified after it was applied; add a new version instead");
+                }
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.resource, StandardCharsets.UTF_8));
+            long elapsed = System.currentTimeMillis() - start;
+            jdbc.update("INSERT INTO schema_version (version, description, checksum, installed_at, execution_ms) "
+                    + "VALUES (?, ?, ?, ?, ?)", migration.version, migration.description, migration.checksum,
+                    Timestamp.valueOf(LocalDateTime.now()), elapsed);
+            logger.info("Applied migration V" + migration.version + " (" + migration.description + ") in " + elapsed + " ms");
+            count++;
+        }
+        if (count == 0) {
+            logger.info("Schema is up to date at version " + (migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version));
+        }
+        return count;
+    }
+
+    private List<Migration> load() {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location + "/V*__*.sql");
+            List<Migration> migrations = new ArrayList<>();
+            for (Resource resource : resources) {
+                Matcher matcher = FILE_NAME.matcher(resource.getFilename() != null ? resource.getFilename() : "");
+                if (!matcher.matches()) {
+                    continue;
+                }
+                byte[] content = resource.getInputStream().readAllBytes();
+                migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                        matcher.group(2).replace('_', ' '), sha256(content), resource));
+            }
+            migrations.sort(Comparator.comparingInt(m -> m.version));
+            for (int i = 1; i < migrations.size(); i++) {
+                if (migrations.get(i).version == migrations.get(i - 1).version) {
+                    throw new IllegalStateException("Duplicate migration version V" + migrations.get(i).version);
+                }
+            }
+            return migrations;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read migrations from " + location, e);
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            // 统一换行符，避免 Windows 检出导致校验和不一致
+            String normalized = new String(content, StandardCharsets.UTF_8).replace("\r\n", "\n");
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final String checksum;
+        private final Resource resource;
+
+        Migration(int version, String description, String checksum, Resource resource) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.resource = resource;
+        }
+    }
+}
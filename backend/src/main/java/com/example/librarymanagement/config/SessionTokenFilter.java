@@ -0,0 +1,52 @@
+package com.example.librarymanagement.config;
+
+import com.example.librarymanagement.service.SessionPrincipal;
+import com.example.librarymanagement.service.SessionTokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 校验 Authorization: Bearer 会话令牌，把身份放入请求属性 PRINCIPAL。
+ * 没有令牌的请求原样放行（兼容旧客户端）；令牌无效或过期直接返回 401。
+ */
+@Component
+public class SessionTokenFilter extends OncePerRequestFilter {
+
+    public static final String PRINCIPAL = "com.example.librarymanagement.config.SessionTokenFilter.PRINCIPAL";
+    private static final String BEARER = "Bearer ";
+
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // 登录和注册不校验旧令牌，过期的客户端才能重新登录
+        String path = request.getServletPath();
+        return path.equals("/api/users/login") || path.equals("/api/users/register");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER)) {
+            SessionPrincipal principal = sessionTokenService.verify(header.substring(BEARER.length()).trim());
+            if (principal == null) {
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.setContentType("text/plain;charset=UTF-8");
+                response.getWriter().write("Invalid or expired session");
+                return;
+            }
+            request.setAttribute(PRINCIPAL, principal);
+        }
+        chain.doFilter(request, response);
+    }
+}
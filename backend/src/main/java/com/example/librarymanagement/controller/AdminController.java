@@ -1,18 +1,38 @@
 package com.example.librarymanagement.controller;
 
+import com.example.librarymanagement.dto.BorrowingView;
+import com.example.librarymanagement.dto.ImportResult;
 import com.example.librarymanagement.entity.Book;
 import com.example.librarymanagement.entity.User;
-import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.service.BookImportService;
 import com.example.librarymanagement.service.BookService;
+import com.example.librarymanagement.service.BorrowingArchiver;
+import com.example.librarymanagement.service.BorrowingExportService;
 import com.example.librarymanagement.service.UserService;
 import com.example.librarymanagement.service.BorrowingService;
+import com.example.librarymanagement.service.LibraryStatistics;
+import com.example.librarymanagement.service.VersionConflictException;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -28,10 +48,32 @@ public class AdminController {
     @Autowired
     private BorrowingService borrowingService;
 
+    @Autowired
+    private LibraryStatistics libraryStatistics;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BorrowingExportService borrowingExportService;
+
+    @Autowired
+    private BorrowingArchiver borrowingArchiver;
+
     // ===== 图书管理 =====
     @GetMapping("/books")
-    public ResponseEntity<List<Book>> getAllBooks() {
-        return ResponseEntity.ok(bookService.findAll());
+    public ResponseEntity<?> getAllBooks(@RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size) {
+        try {
+            int limit = CursorPage.clampSize(size);
+            List<Book> rows = bookService.findPage(CursorPage.decodeCursor(cursor), limit + 1);
+            return ResponseEntity.ok(CursorPage.of(rows, limit, Book::getBookId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @PostMapping("/books")
@@ -40,18 +82,43 @@ public class AdminController {
     }
 
     @PutMapping("/books/{id}")
-    public ResponseEntity<Book> updateBook(@PathVariable Long id, @RequestBody Book bookDetails) {
-        Book book = bookService.findById(id);
-        if (book != null) {
-            book.setTitle(bookDetails.getTitle());
-            book.setAuthor(bookDetails.getAuthor());
-            book.setIsbn(bookDetails.getIsbn());
-            book.setCategory(bookDetails.getCategory());
-            book.setStock(bookDetails.getStock());
-            book.setLocation(bookDetails.getLocation());
-            return ResponseEntity.ok(bookService.save(book));
+    public ResponseEntity<?> updateBook(@PathVariable Long id, @RequestBody Book bookDetails) {
+        try {
+            Book book = bookService.update(id, bookDetails.getVersion(), current -> {
+                current.setTitle(bookDetails.getTitle());
+                current.setAuthor(bookDetails.getAuthor());
+                current.setIsbn(bookDetails.getIsbn());
+                current.setCategory(bookDetails.getCategory());
+                current.setStock(bookDetails.getStock());
+                current.setLocation(bookDetails.getLocation());
+            });
+            if (book != null) {
+                return ResponseEntity.ok(book);
+            }
+            return ResponseEntity.notFound().build();
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /**
+     * 批量导入馆藏：请求体直接是 CSV（首行为表头）或 NDJSON，流式读取不整体缓存。
+     * 失败时返回 500 和 lastCommittedLine，用 resumeFrom 续传。
+     */
+    @PostMapping("/books/import")
+    public ResponseEntity<?> importBooks(HttpServletRequest request,
+                                         @RequestParam(required = false) String format,
+                                         @RequestParam(defaultValue = "0") long resumeFrom) {
+        try {
+            BookImportService.Format importFormat = BookImportService.parseFormat(format, request.getContentType());
+            ImportResult result = bookImportService.importBooks(request.getInputStream(), importFormat, resumeFrom);
+            if (!result.isCompleted()) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
-        return ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/books/{id}")
@@ -62,8 +129,15 @@ public class AdminController {
 
     // ===== 用户管理 =====
     @GetMapping("/users")
-    public ResponseEntity<List<User>> getAllUsers() {
-        return ResponseEntity.ok(userService.findAll());
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size) {
+        try {
+            int limit = CursorPage.clampSize(size);
+            List<User> rows = userService.findPage(CursorPage.decodeCursor(cursor), limit + 1);
+            return ResponseEntity.ok(CursorPage.of(rows, limit, User::getUserId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/users/{userId}")
@@ -92,30 +166,122 @@ public class AdminController {
     }
 
     // ===== 统计报表 =====
+    /**
+     * 默认返回内存计数器快照；fresh=true 时先并发对账，超时的计数以旧值返回并列在 stale 中
+     */
     @GetMapping("/statistics")
-    public ResponseEntity<Map<String, Object>> getStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalUsers", userService.getTotalUsers());
-        stats.put("totalBooks", bookService.getTotalBooks());
-        stats.put("totalBorrowings", borrowingService.getTotalBorrowings());
-        stats.put("overdueCount", borrowingService.getOverdueCount());
-        stats.put("activeBorrowings", borrowingService.getActiveBorrowingsCount());
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<Map<String, Object>> getStatistics(@RequestParam(defaultValue = "false") boolean fresh) {
+        return ResponseEntity.ok(fresh ? libraryStatistics.refresh() : libraryStatistics.snapshot());
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> result = new HashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+                CacheStats stats = nativeCache.stats();
+                Map<String, Object> cacheStats = new HashMap<>();
+                cacheStats.put("size", nativeCache.estimatedSize());
+                cacheStats.put("hitCount", stats.hitCount());
+                cacheStats.put("missCount", stats.missCount());
+                cacheStats.put("hitRate", stats.hitRate());
+                cacheStats.put("evictionCount", stats.evictionCount());
+                result.put(name, cacheStats);
+            }
+        }
+        return ResponseEntity.ok(result);
     }
 
     @GetMapping("/popular-books")
-    public ResponseEntity<List<Map<String, Object>>> getPopularBooks() {
-        return ResponseEntity.ok(borrowingService.getPopularBooks());
+    public ResponseEntity<?> getPopularBooks(@RequestParam(defaultValue = "all") String window,
+                                             @RequestParam(defaultValue = "false") boolean exact) {
+        try {
+            return ResponseEntity.ok(borrowingService.getPopularBooks(window, exact));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * 乐观锁冲突最多的图书（近似计数），用于观察哪些图书的并发修改最集中
+     */
+    @GetMapping("/stock-conflicts")
+    public ResponseEntity<List<Map<String, Object>>> getStockConflicts(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bookService.getConflictHotspots(Math.max(1, Math.min(limit, 100))));
     }
 
     @GetMapping("/borrowing-records")
-    public ResponseEntity<List<Borrowing>> getAllBorrowingRecords() {
-        return ResponseEntity.ok(borrowingService.getAllBorrowings());
+    public ResponseEntity<?> getAllBorrowingRecords(@RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer size) {
+        try {
+            int limit = CursorPage.clampSize(size);
+            List<BorrowingView> rows = borrowingService.getBorrowingsPage(CursorPage.decodeCursor(cursor), limit + 1);
+            return ResponseEntity.ok(CursorPage.of(rows, limit, BorrowingView::getBorrowingId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * 借阅记录流式导出（审计用），按借书日期过滤；gzip=true 时输出 .gz 附件
+     */
+    @GetMapping("/borrowing-records/export")
+    public ResponseEntity<?> exportBorrowingRecords(@RequestParam(required = false) String format,
+                                                    @RequestParam(required = false) String from,
+                                                    @RequestParam(required = false) String to,
+                                                    @RequestParam(defaultValue = "false") boolean gzip) {
+        BorrowingExportService.Format exportFormat;
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            exportFormat = BorrowingExportService.parseFormat(format);
+            fromDate = from != null ? LocalDate.parse(from) : null;
+            toDate = to != null ? LocalDate.parse(to) : null;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        String extension = exportFormat == BorrowingExportService.Format.CSV ? "csv" : "ndjson";
+        String filename = "borrowings." + extension + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : exportFormat == BorrowingExportService.Format.CSV ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson");
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            borrowingExportService.export(target, exportFormat, fromDate, toDate);
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    /**
+     * 立即归档归还时间早于 olderThanDays 天前的借阅（平时由定时任务执行）
+     */
+    @PostMapping("/borrowing-records/archive")
+    public ResponseEntity<?> archiveBorrowingRecords(@RequestParam int olderThanDays) {
+        if (olderThanDays < 0) {
+            return ResponseEntity.badRequest().body("olderThanDays must not be negative");
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("archived", borrowingArchiver.archive(olderThanDays));
+        return ResponseEntity.ok(result);
     }
 
     @GetMapping("/overdue-records")
-    public ResponseEntity<List<Borrowing>> getOverdueRecords() {
-        return ResponseEntity.ok(borrowingService.getOverdueRecords());
+    public ResponseEntity<?> getOverdueRecords(@RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer size) {
+        try {
+            int limit = CursorPage.clampSize(size);
+            List<BorrowingView> rows = borrowingService.getOverdueRecordsPage(CursorPage.decodeCursor(cursor), limit + 1);
+            return ResponseEntity.ok(CursorPage.of(rows, limit, BorrowingView::getBorrowingId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/user-borrowing-stats")
@@ -2,11 +2,16 @@ package com.example.librarymanagement.controller;
 
 import com.example.librarymanagement.entity.Book;
 import com.example.librarymanagement.service.BookService;
+import com.example.librarymanagement.service.RecommendationService;
+import com.example.librarymanagement.service.VersionConflictException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/books")
@@ -15,6 +20,9 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private RecommendationService recommendationService;
+
     @GetMapping("/search")
     public ResponseEntity<List<Book>> search(@RequestParam String keyword) {
         return ResponseEntity.ok(bookService.searchBooks(keyword));
@@ -29,24 +37,38 @@ public class BookController {
         return ResponseEntity.notFound().build();
     }
 
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<Map<String, Object>>> getRelated(@PathVariable Long id,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        if (bookService.findById(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(recommendationService.getRelatedBooks(id, limit));
+    }
+
     @PostMapping
     public ResponseEntity<Book> createBook(@RequestBody Book book) {
         return ResponseEntity.ok(bookService.save(book));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Book> updateBook(@PathVariable Long id, @RequestBody Book bookDetails) {
-        Book book = bookService.findById(id);
-        if (book != null) {
-            book.setTitle(bookDetails.getTitle());
-            book.setAuthor(bookDetails.getAuthor());
-            book.setIsbn(bookDetails.getIsbn());
-            book.setCategory(bookDetails.getCategory());
-            book.setStock(bookDetails.getStock());
-            book.setLocation(bookDetails.getLocation());
-            return ResponseEntity.ok(bookService.save(book));
+    public ResponseEntity<?> updateBook(@PathVariable Long id, @RequestBody Book bookDetails) {
+        try {
+            Book book = bookService.update(id, bookDetails.getVersion(), current -> {
+                current.setTitle(bookDetails.getTitle());
+                current.setAuthor(bookDetails.getAuthor());
+                current.setIsbn(bookDetails.getIsbn());
+                current.setCategory(bookDetails.getCategory());
+                current.setStock(bookDetails.getStock());
+                current.setLocation(bookDetails.getLocation());
+            });
+            if (book != null) {
+                return ResponseEntity.ok(book);
+            }
+            return ResponseEntity.notFound().build();
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         }
-        return ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/{id}")
@@ -65,12 +87,16 @@ public class BookController {
     }
 
     @PutMapping("/{id}/stock")
-    public ResponseEntity<Book> updateStock(@PathVariable Long id, @RequestParam Integer stock) {
-        Book book = bookService.findById(id);
-        if (book != null) {
-            book.setStock(stock);
-            return ResponseEntity.ok(bookService.save(book));
+    public ResponseEntity<?> updateStock(@PathVariable Long id, @RequestParam Integer stock,
+                                         @RequestParam(required = false) Long version) {
+        try {
+            Book book = bookService.update(id, version, current -> current.setStock(stock));
+            if (book != null) {
+                return ResponseEntity.ok(book);
+            }
+            return ResponseEntity.notFound().build();
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         }
-        return ResponseEntity.notFound().build();
     }
-}
\ No newline at end of file
+}
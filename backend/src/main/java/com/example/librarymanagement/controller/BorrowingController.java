@@ -1,12 +1,16 @@
 package com.example.librarymanagement.controller;
 
-import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.config.SessionTokenFilter;
+import com.example.librarymanagement.dto.BorrowingView;
 import com.example.librarymanagement.entity.User;
 import com.example.librarymanagement.entity.Book;
 import com.example.librarymanagement.service.BorrowingService;
 import com.example.librarymanagement.service.UserService;
 import com.example.librarymanagement.service.BookService;
+import com.example.librarymanagement.service.IdempotencyService;
+import com.example.librarymanagement.service.SessionPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,32 +30,117 @@ public class BorrowingController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    /**
+     * 携带 Idempotency-Key 时，同键重发的请求直接返回第一次的响应，不会重复借书
+     */
     @PostMapping("/borrow")
-    public ResponseEntity<?> borrowBook(@RequestBody BorrowRequest request) {
+    public ResponseEntity<?> borrowBook(@RequestBody BorrowRequest request,
+                                        @RequestAttribute(name = SessionTokenFilter.PRINCIPAL, required = false) SessionPrincipal principal,
+                                        @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String fingerprint = caller(principal, request.getUsername()) + "|book=" + request.getBookId();
+        return idempotencyService.execute("borrow", idempotencyKey, fingerprint, () -> doBorrowBook(request, principal));
+    }
+
+    private ResponseEntity<?> doBorrowBook(BorrowRequest request, SessionPrincipal principal) {
         try {
-            User user = userService.findByUsername(request.getUsername());
+            // 携带会话令牌时直接使用令牌中的 userId，不再按用户名查库
+            Long userId;
+            if (principal != null) {
+                userId = principal.getUserId();
+            } else {
+                User user = userService.findByUsername(request.getUsername());
+                userId = user != null ? user.getUserId() : null;
+            }
             Book book = bookService.findById(request.getBookId());
-            if (user == null || book == null) {
+            if (userId == null || book == null) {
                 return ResponseEntity.badRequest().body("User or Book not found");
             }
-            return ResponseEntity.ok(borrowingService.borrowBook(user.getUserId(), book.getBookId()));
+            return ResponseEntity.ok(borrowingService.borrowBook(userId, book.getBookId()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * 自助借书机购物车结账：一次请求借多本书，用户只解析一次，逐本返回结果
+     */
+    @PostMapping("/borrow/batch")
+    public ResponseEntity<?> borrowBooks(@RequestBody BatchBorrowRequest request,
+                                         @RequestAttribute(name = SessionTokenFilter.PRINCIPAL, required = false) SessionPrincipal principal,
+                                         @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String fingerprint = caller(principal, request.getUsername()) + "|books=" + request.getBookIds();
+        return idempotencyService.execute("borrow_batch", idempotencyKey, fingerprint, () -> doBorrowBooks(request, principal));
+    }
+
+    private ResponseEntity<?> doBorrowBooks(BatchBorrowRequest request, SessionPrincipal principal) {
+        try {
+            Long userId;
+            if (principal != null) {
+                userId = principal.getUserId();
+            } else {
+                User user = userService.findByUsername(request.getUsername());
+                userId = user != null ? user.getUserId() : null;
+            }
+            if (userId == null) {
+                return ResponseEntity.badRequest().body("User not found");
+            }
+            return ResponseEntity.ok(borrowingService.borrowBooks(userId, request.getBookIds()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
     @PostMapping("/return")
-    public ResponseEntity<?> returnBook(@RequestParam Long borrowingId) {
+    public ResponseEntity<?> returnBook(@RequestParam Long borrowingId,
+                                        @RequestAttribute(name = SessionTokenFilter.PRINCIPAL, required = false) SessionPrincipal principal,
+                                        @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String fingerprint = caller(principal, null) + "|borrowing=" + borrowingId;
+        return idempotencyService.execute("return", idempotencyKey, fingerprint, () -> doReturnBook(borrowingId, principal));
+    }
+
+    private ResponseEntity<?> doReturnBook(Long borrowingId, SessionPrincipal principal) {
         try {
+            if (principal != null && !principal.isAdmin()) {
+                return ResponseEntity.ok(borrowingService.returnBook(borrowingId, principal.getUserId()));
+            }
             return ResponseEntity.ok(borrowingService.returnBook(borrowingId));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    @PostMapping("/return/batch")
+    public ResponseEntity<?> returnBooks(@RequestBody BatchReturnRequest request,
+                                         @RequestAttribute(name = SessionTokenFilter.PRINCIPAL, required = false) SessionPrincipal principal,
+                                         @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String fingerprint = caller(principal, null) + "|borrowings=" + request.getBorrowingIds();
+        return idempotencyService.execute("return_batch", idempotencyKey, fingerprint, () -> doReturnBooks(request, principal));
+    }
+
+    private ResponseEntity<?> doReturnBooks(BatchReturnRequest request, SessionPrincipal principal) {
+        try {
+            Long expectedUserId = principal != null && !principal.isAdmin() ? principal.getUserId() : null;
+            return ResponseEntity.ok(borrowingService.returnBooks(request.getBorrowingIds(), expectedUserId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 幂等指纹中的调用者：有会话令牌时用 userId，否则用请求中的用户名
+    private static String caller(SessionPrincipal principal, String username) {
+        return principal != null ? "user=" + principal.getUserId() : "username=" + username;
+    }
+
     @GetMapping("/borrowings/{userId}")
-    public ResponseEntity<List<Borrowing>> getBorrowingHistory(@PathVariable Long userId) {
-        return ResponseEntity.ok(borrowingService.getBorrowingsByUser(userId));
+    public ResponseEntity<List<BorrowingView>> getBorrowingHistory(@PathVariable Long userId,
+                                                                   @RequestAttribute(name = SessionTokenFilter.PRINCIPAL, required = false) SessionPrincipal principal) {
+        if (principal != null && !principal.canAccess(userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(borrowingService.getBorrowingViewsByUser(userId));
     }
 
     @DeleteMapping("/borrowings/{borrowingId}")
@@ -70,4 +159,22 @@ public class BorrowingController {
         public Long getBookId() { return bookId; }
         public void setBookId(Long bookId) { this.bookId = bookId; }
     }
+
+    public static class BatchBorrowRequest {
+        private String username;
+        private List<Long> bookIds;
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public List<Long> getBookIds() { return bookIds; }
+        public void setBookIds(List<Long> bookIds) { this.bookIds = bookIds; }
+    }
+
+    public static class BatchReturnRequest {
+        private List<Long> borrowingIds;
+
+        public List<Long> getBorrowingIds() { return borrowingIds; }
+        public void setBorrowingIds(List<Long> borrowingIds) { this.borrowingIds = borrowingIds; }
+    }
 }
\ No newline at end of file
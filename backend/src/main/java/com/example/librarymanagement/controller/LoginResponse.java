@@ -5,12 +5,14 @@ public class LoginResponse {
     private Long userId;
     private String username;
     private String role;
+    private String token;
 
-    public LoginResponse(String message, Long userId, String username, String role) {
+    public LoginResponse(String message, Long userId, String username, String role, String token) {
         this.message = message;
         this.userId = userId;
         this.username = username;
         this.role = role;
+        this.token = token;
     }
 
     public String getMessage() {
@@ -44,4 +46,12 @@ public class LoginResponse {
     public void setRole(String role) {
         this.role = role;
     }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
 }
@@ -1,8 +1,18 @@
 package com.example.librarymanagement.controller;
 
 import com.example.librarymanagement.entity.User;
+import com.example.librarymanagement.service.LibraryMetrics;
+import com.example.librarymanagement.service.LoginRateLimiter;
+import com.example.librarymanagement.service.LoginThrottledException;
+import com.example.librarymanagement.service.PasswordHasher;
+import com.example.librarymanagement.service.PasswordVerificationPool;
+import com.example.librarymanagement.service.SessionTokenService;
 import com.example.librarymanagement.service.UserService;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
@@ -18,6 +28,21 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
+    @Autowired
+    private PasswordVerificationPool passwordVerificationPool;
+
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody User user) {
         try {
@@ -32,40 +57,65 @@ public class UserController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletRequest httpRequest) {
         logger.info("Login attempt for username: " + loginRequest.getUsername());
         logger.info("Password length: " + loginRequest.getPassword().length());
-        
+        Timer.Sample sample = libraryMetrics.start();
+        try {
+            loginRateLimiter.acquire(loginRequest.getUsername(), httpRequest.getRemoteAddr());
+            return authenticate(loginRequest, sample);
+        } catch (LoginThrottledException e) {
+            logger.warn("Login throttled (" + e.getReason() + ") for username: " + loginRequest.getUsername());
+            libraryMetrics.loginRejected(e.getReason());
+            libraryMetrics.record(LibraryMetrics.LOGIN, "throttled", sample);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> authenticate(LoginRequest loginRequest, Timer.Sample sample) {
         User user = userService.findByUsername(loginRequest.getUsername());
         if (user == null) {
             logger.error("User not found: " + loginRequest.getUsername());
+            libraryMetrics.record(LibraryMetrics.LOGIN, "unknown_user", sample);
             return ResponseEntity.badRequest().body("Invalid credentials");
         }
-        
-        logger.info("User found: " + user.getUsername());
-        logger.info("Stored password hash: " + user.getPassword());
-        logger.info("Input password: " + loginRequest.getPassword());
-        
-        boolean passwordMatch = userService.checkPassword(loginRequest.getPassword(), user.getPassword());
-        logger.info("Password match result: " + passwordMatch);
-        
+
+        // BCrypt 在独立的有界线程池中执行，不占用请求线程的 CPU
+        boolean passwordMatch = passwordVerificationPool.verify(
+                () -> userService.checkPassword(loginRequest.getPassword(), user.getPassword()));
+
         if (passwordMatch) {
-            logger.info("Login successful for user: " + user.getUsername());
+            // 成本与标定值不一致时在校验线程池里后台重新哈希，不阻塞登录；排不上队就留到下次登录
+            if (passwordHasher.needsRehash(user.getPassword())) {
+                String plainPassword = loginRequest.getPassword();
+                passwordVerificationPool.offer(() -> {
+                    try {
+                        userService.rehashIfNeeded(user, plainPassword);
+                    } catch (RuntimeException e) {
+                        logger.warn("Password rehash failed for " + user.getUsername() + ": " + e.getMessage());
+                    }
+                });
+            }
+            libraryMetrics.record(LibraryMetrics.LOGIN, "success", sample);
             // 返回用户信息和角色用于前端存储
             return ResponseEntity.ok(new LoginResponse(
                 "Login successful",
                 user.getUserId(),
                 user.getUsername(),
-                user.getRole().toValue()
+                user.getRole().toValue(),
+                sessionTokenService.issue(user)
             ));
         }
         logger.error("Password mismatch for user: " + loginRequest.getUsername());
+        libraryMetrics.record(LibraryMetrics.LOGIN, "bad_password", sample);
         return ResponseEntity.badRequest().body("Invalid credentials");
     }
 
     @GetMapping("/debug/hash")
     public ResponseEntity<?> debugHash(@RequestParam String password) {
-        String hash = org.mindrot.jbcrypt.BCrypt.hashpw(password, org.mindrot.jbcrypt.BCrypt.gensalt());
+        String hash = passwordHasher.hash(password);
         return ResponseEntity.ok("{\"password\":\"" + password + "\",\"hash\":\"" + hash + "\"}");
     }
 
@@ -0,0 +1,56 @@
+package com.example.librarymanagement.dto;
+
+import com.example.librarymanagement.entity.Borrowing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量借书/还书结果：每个条目单独给出成功或拒绝原因，顺序与请求一致。
+ */
+public class BatchResult {
+    private int succeeded;
+    private int rejected;
+    private List<Item> items = new ArrayList<>();
+
+    public void success(Long id, Borrowing borrowing) {
+        succeeded++;
+        items.add(new Item(id, true, null, borrowing));
+    }
+
+    public void reject(Long id, String reason) {
+        rejected++;
+        items.add(new Item(id, false, reason, null));
+    }
+
+    public int getSucceeded() { return succeeded; }
+    public void setSucceeded(int succeeded) { this.succeeded = succeeded; }
+
+    public int getRejected() { return rejected; }
+    public void setRejected(int rejected) { this.rejected = rejected; }
+
+    public List<Item> getItems() { return items; }
+    public void setItems(List<Item> items) { this.items = items; }
+
+    /**
+     * id 为请求中的 bookId（借书）或 borrowingId（还书）
+     */
+    public static class Item {
+        private Long id;
+        private boolean success;
+        private String reason;
+        private Borrowing borrowing;
+
+        public Item(Long id, boolean success, String reason, Borrowing borrowing) {
+            this.id = id;
+            this.success = success;
+            this.reason = reason;
+            this.borrowing = borrowing;
+        }
+
+        public Long getId() { return id; }
+        public boolean isSuccess() { return success; }
+        public String getReason() { return reason; }
+        public Borrowing getBorrowing() { return borrowing; }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.librarymanagement.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 借阅记录列表的投影：一条 SQL 连接取出页面需要的列，不加载完整的 Book 实体。
+ */
+public class BorrowingView {
+    private Long borrowingId;
+    private Long userId;
+    private String username;
+    private Long bookId;
+    private String bookTitle;
+    private String bookAuthor;
+    private LocalDateTime borrowDate;
+    private LocalDateTime dueDate;
+    private LocalDateTime returnDate;
+    private BigDecimal fine;
+
+    public BorrowingView(Long borrowingId, Long userId, String username, Long bookId, String bookTitle,
+                         String bookAuthor, LocalDateTime borrowDate, LocalDateTime dueDate,
+                         LocalDateTime returnDate, BigDecimal fine) {
+        this.borrowingId = borrowingId;
+        this.userId = userId;
+        this.username = username;
+        this.bookId = bookId;
+        this.bookTitle = bookTitle;
+        this.bookAuthor = bookAuthor;
+        this.borrowDate = borrowDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+        this.fine = fine;
+    }
+
+    public Long getBorrowingId() { return borrowingId; }
+    public void setBorrowingId(Long borrowingId) { this.borrowingId = borrowingId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public Long getBookId() { return bookId; }
+    public void setBookId(Long bookId) { this.bookId = bookId; }
+
+    public String getBookTitle() { return bookTitle; }
+    public void setBookTitle(String bookTitle) { this.bookTitle = bookTitle; }
+
+    public String getBookAuthor() { return bookAuthor; }
+    public void setBookAuthor(String bookAuthor) { this.bookAuthor = bookAuthor; }
+
+    public LocalDateTime getBorrowDate() { return borrowDate; }
+    public void setBorrowDate(LocalDateTime borrowDate) { this.borrowDate = borrowDate; }
+
+    public LocalDateTime getDueDate() { return dueDate; }
+    public void setDueDate(LocalDateTime dueDate) { this.dueDate = dueDate; }
+
+    public LocalDateTime getReturnDate() { return returnDate; }
+    public void setReturnDate(LocalDateTime returnDate) { this.returnDate = returnDate; }
+
+    public BigDecimal getFine() { return fine; }
+    public void setFine(BigDecimal fine) { this.fine = fine; }
+}
@@ -0,0 +1,55 @@
+package com.example.librarymanagement.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入结果。lastCommittedLine 之前（含）的行都已提交，失败后用 resumeFrom=lastCommittedLine 续传。
+ */
+public class ImportResult {
+    public static final int MAX_ERRORS = 100;
+
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private long lastCommittedLine;
+    private long elapsedMs;
+    private double rowsPerSecond;
+    private boolean completed;
+    private String failure;
+    private List<String> errors = new ArrayList<>();
+
+    public void reject(long line, String reason) {
+        rowsRejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("line " + line + ": " + reason);
+        }
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public void setRowsRead(long rowsRead) { this.rowsRead = rowsRead; }
+
+    public long getRowsImported() { return rowsImported; }
+    public void setRowsImported(long rowsImported) { this.rowsImported = rowsImported; }
+
+    public long getRowsRejected() { return rowsRejected; }
+    public void setRowsRejected(long rowsRejected) { this.rowsRejected = rowsRejected; }
+
+    public long getLastCommittedLine() { return lastCommittedLine; }
+    public void setLastCommittedLine(long lastCommittedLine) { this.lastCommittedLine = lastCommittedLine; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+
+    public double getRowsPerSecond() { return rowsPerSecond; }
+    public void setRowsPerSecond(double rowsPerSecond) { this.rowsPerSecond = rowsPerSecond; }
+
+    public boolean isCompleted() { return completed; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+
+    public String getFailure() { return failure; }
+    public void setFailure(String failure) { this.failure = failure; }
+
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+}
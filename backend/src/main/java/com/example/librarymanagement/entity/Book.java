@@ -33,6 +33,11 @@ public class Book {
     @Column(nullable = false)
     private LocalDateTime updatedAt = LocalDateTime.now();
 
+    // 乐观锁版本号；库存的条件 UPDATE 也会递增它
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     // Getters and Setters
     public Long getBookId() { return bookId; }
     public void setBookId(Long bookId) { this.bookId = bookId; }
@@ -60,4 +65,7 @@ public class Book {
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
-}
\ No newline at end of file
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
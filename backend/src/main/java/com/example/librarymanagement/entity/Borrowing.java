@@ -18,7 +18,9 @@ public class Borrowing {
     @Column(name = "book_id", nullable = false)
     private Long bookId;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // 列表页通过 BorrowingView 投影取书名和作者，不再随每条记录加载并序列化整本书
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", insertable = false, updatable = false)
     private Book book;
 
@@ -39,6 +41,11 @@ public class Borrowing {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // 乐观锁：并发归还同一条借阅时只有一个能提交
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -80,4 +87,7 @@ public class Borrowing {
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
-}
\ No newline at end of file
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
@@ -0,0 +1,78 @@
+package com.example.librarymanagement.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 已归档的借阅记录（冷数据）。保留原 borrowing_id，由 BorrowingArchiver 从 borrowings 表整批搬入，只读。
+ */
+@Entity
+@Table(name = "borrowings_history")
+public class BorrowingHistory {
+    @Id
+    private Long borrowingId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(nullable = false)
+    private LocalDateTime borrowDate;
+
+    @Column(nullable = false)
+    private LocalDateTime dueDate;
+
+    private LocalDateTime returnDate;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal fine = BigDecimal.ZERO;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+
+    @Column(nullable = false)
+    private Long version = 0L;
+
+    // Getters and Setters
+    public Long getBorrowingId() { return borrowingId; }
+    public void setBorrowingId(Long borrowingId) { this.borrowingId = borrowingId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getBookId() { return bookId; }
+    public void setBookId(Long bookId) { this.bookId = bookId; }
+
+    public LocalDateTime getBorrowDate() { return borrowDate; }
+    public void setBorrowDate(LocalDateTime borrowDate) { this.borrowDate = borrowDate; }
+
+    public LocalDateTime getDueDate() { return dueDate; }
+    public void setDueDate(LocalDateTime dueDate) { this.dueDate = dueDate; }
+
+    public LocalDateTime getReturnDate() { return returnDate; }
+    public void setReturnDate(LocalDateTime returnDate) { this.returnDate = returnDate; }
+
+    public BigDecimal getFine() { return fine; }
+    public void setFine(BigDecimal fine) { this.fine = fine; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
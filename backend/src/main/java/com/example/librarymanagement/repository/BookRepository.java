@@ -1,15 +1,55 @@
 package com.example.librarymanagement.repository;
 
 import com.example.librarymanagement.entity.Book;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
     List<Book> findByTitleContainingOrAuthorContainingOrIsbn(String title, String author, String isbn);
 
+    List<Book> findByBookIdGreaterThanOrderByBookIdAsc(Long bookId, Pageable pageable);
+
     @Query("SELECT b FROM Book b WHERE b.title LIKE %:keyword% OR b.author LIKE %:keyword% OR b.isbn LIKE %:keyword%")
     List<Book> searchBooks(@Param("keyword") String keyword);
-}
\ No newline at end of file
+
+    // 受影响行数为 0 表示图书不存在（或已被并发删除）
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Book b WHERE b.bookId = :bookId")
+    int deleteBookById(@Param("bookId") Long bookId);
+
+    // 条件更新：受影响行数为 1 表示扣减成功，库存为 0 时不会超借
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.stock = b.stock - 1, b.version = b.version + 1 WHERE b.bookId = :bookId AND b.stock > 0")
+    int decrementStock(@Param("bookId") Long bookId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.stock = b.stock + 1, b.version = b.version + 1 WHERE b.bookId = :bookId")
+    int incrementStock(@Param("bookId") Long bookId);
+
+    // 批量借书：按主键顺序加锁，多个购物车同时结账时加锁顺序一致，不会互相死锁
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.bookId IN :bookIds ORDER BY b.bookId")
+    List<Book> lockAllById(@Param("bookIds") Collection<Long> bookIds);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.stock = b.stock - 1, b.version = b.version + 1 WHERE b.bookId IN :bookIds AND b.stock > 0")
+    int decrementStockAll(@Param("bookIds") Collection<Long> bookIds);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.stock = b.stock + :count, b.version = b.version + 1 WHERE b.bookId IN :bookIds")
+    int incrementStockAll(@Param("bookIds") Collection<Long> bookIds, @Param("count") int count);
+}
@@ -0,0 +1,18 @@
+package com.example.librarymanagement.repository;
+
+import com.example.librarymanagement.entity.BorrowingHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BorrowingHistoryRepository extends JpaRepository<BorrowingHistory, Long> {
+
+    @Query("SELECT h.bookId, COUNT(h) FROM BorrowingHistory h GROUP BY h.bookId")
+    List<Object[]> countBorrowsByBook();
+
+    @Query("SELECT h.bookId, h.borrowDate FROM BorrowingHistory h WHERE h.borrowDate >= :since")
+    List<Object[]> findBorrowDatesSince(@Param("since") LocalDateTime since);
+}
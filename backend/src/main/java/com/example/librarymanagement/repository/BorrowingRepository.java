@@ -1,27 +1,127 @@
 package com.example.librarymanagement.repository;
 
+import com.example.librarymanagement.dto.BorrowingView;
 import com.example.librarymanagement.entity.Borrowing;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public interface BorrowingRepository extends JpaRepository<Borrowing, Long> {
+    String BORROWING_VIEW_SELECT = "SELECT new com.example.librarymanagement.dto.BorrowingView(" +
+            "b.borrowingId, b.userId, u.username, b.bookId, bk.title, bk.author, " +
+            "b.borrowDate, b.dueDate, b.returnDate, b.fine) " +
+            "FROM Borrowing b LEFT JOIN b.book bk LEFT JOIN User u ON u.userId = b.userId ";
+
+    // 热表与归档表的并集：列顺序与 BorrowingView 构造参数一致
+    String BORROWING_ROW_SELECT = "SELECT b.borrowingId, b.userId, u.username, b.bookId, bk.title, bk.author, " +
+            "b.borrowDate, b.dueDate, b.returnDate, b.fine " +
+            "FROM Borrowing b LEFT JOIN b.book bk LEFT JOIN User u ON u.userId = b.userId ";
+    String HISTORY_ROW_SELECT = "SELECT h.borrowingId, h.userId, u.username, h.bookId, bk.title, bk.author, " +
+            "h.borrowDate, h.dueDate, h.returnDate, h.fine " +
+            "FROM BorrowingHistory h LEFT JOIN Book bk ON bk.bookId = h.bookId LEFT JOIN User u ON u.userId = h.userId ";
+    String ALL_BORROWINGS = "(SELECT book_id, user_id, borrow_date FROM borrowings " +
+            "UNION ALL SELECT book_id, user_id, borrow_date FROM borrowings_history)";
+
     List<Borrowing> findByUserId(Long userId);
+
     List<Borrowing> findByBookIdAndReturnDateIsNull(Long bookId);
     List<Borrowing> findByReturnDateIsNull();
+    long countByReturnDateIsNull();
+    long countByReturnDateIsNullAndDueDateBefore(LocalDateTime dueDate);
+
+    @Query("SELECT b.borrowingId, b.userId, b.bookId, b.dueDate FROM Borrowing b WHERE b.returnDate IS NULL")
+    List<Object[]> findOpenLoanDueDates();
+
+    // 括号使 ORDER BY 作用于整个并集，而不是最后一个分支
+    @Query("(" + BORROWING_ROW_SELECT + "WHERE b.userId = :userId UNION ALL " +
+           HISTORY_ROW_SELECT + "WHERE h.userId = :userId) ORDER BY 7 DESC")
+    List<Object[]> findViewRowsByUserId(@Param("userId") Long userId);
+
+    // 每个分支先按主键取前 :limit 条（走主键索引，遇到 limit 即停），外层只合并 2×limit 行
+    @Query(value = "SELECT * FROM (" +
+                   "(SELECT b.borrowing_id, b.user_id, u.username, b.book_id, bk.title, bk.author, " +
+                   "b.borrow_date, b.due_date, b.return_date, b.fine FROM borrowings b " +
+                   "LEFT JOIN books bk ON bk.book_id = b.book_id LEFT JOIN users u ON u.user_id = b.user_id " +
+                   "WHERE b.borrowing_id > :afterId ORDER BY b.borrowing_id LIMIT :limit) " +
+                   "UNION ALL " +
+                   "(SELECT h.borrowing_id, h.user_id, u.username, h.book_id, bk.title, bk.author, " +
+                   "h.borrow_date, h.due_date, h.return_date, h.fine FROM borrowings_history h " +
+                   "LEFT JOIN books bk ON bk.book_id = h.book_id LEFT JOIN users u ON u.user_id = h.user_id " +
+                   "WHERE h.borrowing_id > :afterId ORDER BY h.borrowing_id LIMIT :limit)" +
+                   ") v ORDER BY v.borrowing_id LIMIT :limit", nativeQuery = true)
+    List<Object[]> findViewRowsAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    default List<BorrowingView> findViewsByUserId(Long userId) {
+        return toViews(findViewRowsByUserId(userId));
+    }
+
+    default List<BorrowingView> findViewsAfter(Long afterId, Pageable pageable) {
+        return toViews(findViewRowsAfter(afterId, pageable.getPageSize()));
+    }
+
+    @Query(BORROWING_VIEW_SELECT +
+           "WHERE b.returnDate IS NULL AND b.dueDate < :now AND b.borrowingId > :afterId ORDER BY b.borrowingId")
+    List<BorrowingView> findOverdueViewsAfter(@Param("now") LocalDateTime now, @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    @Query(BORROWING_VIEW_SELECT + "WHERE b.borrowingId IN :ids AND b.returnDate IS NULL ORDER BY b.borrowingId")
+    List<BorrowingView> findOpenViewsByIds(@Param("ids") Collection<Long> ids);
 
     @Query(value = "SELECT b.book_id, bk.title, COUNT(*) as borrow_count " +
-                   "FROM borrowings b " +
+                   "FROM " + ALL_BORROWINGS + " b " +
                    "JOIN books bk ON b.book_id = bk.book_id " +
                    "GROUP BY b.book_id, bk.title " +
                    "ORDER BY borrow_count DESC LIMIT 10", nativeQuery = true)
     List<Object[]> getPopularBooks();
 
+    @Query(value = "SELECT b.book_id, bk.title, COUNT(*) as borrow_count " +
+                   "FROM (SELECT book_id FROM borrowings WHERE borrow_date >= :since " +
+                   "UNION ALL SELECT book_id FROM borrowings_history WHERE borrow_date >= :since) b " +
+                   "JOIN books bk ON b.book_id = bk.book_id " +
+                   "GROUP BY b.book_id, bk.title " +
+                   "ORDER BY borrow_count DESC LIMIT 10", nativeQuery = true)
+    List<Object[]> getPopularBooksSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT b.bookId, COUNT(b) FROM Borrowing b GROUP BY b.bookId")
+    List<Object[]> countBorrowsByBook();
+
+    @Query("SELECT b.bookId, b.borrowDate FROM Borrowing b WHERE b.borrowDate >= :since")
+    List<Object[]> findBorrowDatesSince(@Param("since") LocalDateTime since);
+
     @Query(value = "SELECT u.user_id, u.username, COUNT(*) as borrow_count " +
-                   "FROM borrowings b " +
+                   "FROM " + ALL_BORROWINGS + " b " +
                    "JOIN users u ON b.user_id = u.user_id " +
                    "GROUP BY u.user_id, u.username " +
                    "ORDER BY borrow_count DESC", nativeQuery = true)
     List<Object[]> getUserBorrowingStats();
-}
\ No newline at end of file
+
+    private static List<BorrowingView> toViews(List<Object[]> rows) {
+        List<BorrowingView> views = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            views.add(new BorrowingView(toLong(row[0]), toLong(row[1]), (String) row[2], toLong(row[3]),
+                    (String) row[4], (String) row[5], toDateTime(row[6]), toDateTime(row[7]),
+                    toDateTime(row[8]), (BigDecimal) row[9]));
+        }
+        return views;
+    }
+
+    // 原生查询的列类型取决于驱动：BIGINT 可能是 BigInteger，DATETIME 可能是 Timestamp
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
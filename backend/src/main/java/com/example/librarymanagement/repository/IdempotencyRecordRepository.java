@@ -0,0 +1,50 @@
+package com.example.librarymanagement.repository;
+
+import com.example.librarymanagement.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // 直接 INSERT 占用键：主键冲突说明已有同键请求（执行中或已完成），不能用 save 的 merge 语义
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, created_at) " +
+                   "VALUES (:key, :requestHash, :createdAt)", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestHash") String requestHash,
+              @Param("createdAt") LocalDateTime createdAt);
+
+    // 接管超时的占用：只有 created_at 仍是读到的值时才成功，并发接管只有一个能更新到这一行
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.requestHash = :requestHash, r.createdAt = :claimedAt " +
+           "WHERE r.idempotencyKey = :key AND r.statusCode IS NULL AND r.createdAt = :seen")
+    int takeOver(@Param("key") String key, @Param("requestHash") String requestHash,
+                 @Param("seen") LocalDateTime seen, @Param("claimedAt") LocalDateTime claimedAt);
+
+    // complete / release 都以占用时间为凭据：占用已被接管时不影响接管者
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.statusCode = :statusCode, r.contentType = :contentType, " +
+           "r.responseBody = :responseBody, r.completedAt = :completedAt " +
+           "WHERE r.idempotencyKey = :key AND r.statusCode IS NULL AND r.createdAt = :claimedAt")
+    int complete(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("statusCode") int statusCode, @Param("contentType") String contentType,
+                 @Param("responseBody") String responseBody, @Param("completedAt") LocalDateTime completedAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r " +
+           "WHERE r.idempotencyKey = :key AND r.statusCode IS NULL AND r.createdAt = :claimedAt")
+    int release(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,8 +1,23 @@
 package com.example.librarymanagement.repository;
 
 import com.example.librarymanagement.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     User findByUsername(String username);
+
+    List<User> findByUserIdGreaterThanOrderByUserIdAsc(Long userId, Pageable pageable);
+
+    // 受影响行数为 0 表示用户不存在（或已被并发删除）
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM User u WHERE u.userId = :userId")
+    int deleteUserById(@Param("userId") Long userId);
 }
\ No newline at end of file
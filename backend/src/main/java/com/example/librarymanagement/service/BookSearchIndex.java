@@ -0,0 +1,280 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.Book;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 图书检索的内存 n-gram 倒排索引。
+ * 所有字段按二元组（bigram）切分，中日韩字符额外建立单字索引，
+ * 查询时对倒排表求交集，再对候选做子串校验，结果与 LIKE %keyword% 一致。
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final int SCORE_TITLE_EXACT = 100;
+    private static final int SCORE_TITLE_PREFIX = 80;
+    private static final int SCORE_TITLE = 60;
+    private static final int SCORE_AUTHOR = 40;
+    private static final int SCORE_ISBN = 20;
+
+    // 重建时在新实例上建好后整体替换，检索读取的始终是一份完整的索引
+    private volatile Postings current = new Postings();
+    private volatile boolean ready = false;
+    // 重建期间的增量修改，替换前在新索引上按顺序重放；不在重建时为 null
+    private List<Consumer<Postings>> changesDuringRebuild;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    public void rebuild(List<Book> books) {
+        rebuild(() -> books);
+    }
+
+    /**
+     * 读取快照并在锁外建好新索引；从开始读取到替换之间的 index / remove 记录下来，
+     * 替换前在新索引上重放，不会因快照早于这些修改而丢失。
+     */
+    public void rebuild(Supplier<List<Book>> snapshot) {
+        rebuildLock.lock();
+        try {
+            synchronized (this) {
+                changesDuringRebuild = new ArrayList<>();
+            }
+            Postings rebuilt = new Postings();
+            try {
+                List<Book> books = snapshot.get();
+                if (books != null) {
+                    for (Book book : books) {
+                        rebuilt.add(book);
+                    }
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changesDuringRebuild = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+                changesDuringRebuild = null;
+                current = rebuilt;
+                ready = true;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public synchronized void index(Book book) {
+        apply(postings -> postings.add(book));
+    }
+
+    public synchronized void remove(Long bookId) {
+        apply(postings -> postings.remove(bookId));
+    }
+
+    private void apply(Consumer<Postings> change) {
+        change.accept(current);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return current.documents.size();
+    }
+
+    /**
+     * 返回按相关度排序的图书ID：书名完全匹配 > 书名前缀 > 书名包含 > 作者包含 > ISBN包含。
+     */
+    public List<Long> search(String keyword) {
+        String query = normalize(keyword);
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Postings index = current;
+        List<ScoredHit> hits = new ArrayList<>();
+        for (Long bookId : candidates(index, query)) {
+            IndexedBook doc = index.documents.get(bookId);
+            if (doc == null) {
+                continue;
+            }
+            int score = score(doc, query);
+            if (score > 0) {
+                hits.add(new ScoredHit(doc, score));
+            }
+        }
+        hits.sort(Comparator.comparingInt((ScoredHit h) -> -h.score)
+                .thenComparingInt(h -> h.doc.title.length())
+                .thenComparingLong(h -> h.doc.bookId));
+        List<Long> result = new ArrayList<>(hits.size());
+        for (ScoredHit hit : hits) {
+            result.add(hit.doc.bookId);
+        }
+        return result;
+    }
+
+    private static Set<Long> candidates(Postings index, String query) {
+        if (query.length() == 1) {
+            if (isCjk(query.charAt(0))) {
+                Set<Long> ids = index.postings.get(query);
+                return ids != null ? ids : Set.of();
+            }
+            // 单个拉丁字符没有可用的 n-gram，直接校验内存中的全部文档
+            return index.documents.keySet();
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : bigrams(query)) {
+            Set<Long> ids = index.postings.get(gram);
+            if (ids == null || ids.isEmpty()) {
+                return Set.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> smallest = lists.get(0);
+        Set<Long> result = new HashSet<>();
+        for (Long id : smallest) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(id);
+            }
+            if (inAll) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private int score(IndexedBook doc, String query) {
+        if (doc.title.equals(query)) {
+            return SCORE_TITLE_EXACT;
+        }
+        if (doc.title.startsWith(query)) {
+            return SCORE_TITLE_PREFIX;
+        }
+        if (doc.title.contains(query)) {
+            return SCORE_TITLE;
+        }
+        if (doc.author.contains(query)) {
+            return SCORE_AUTHOR;
+        }
+        if (doc.isbn.contains(query)) {
+            return SCORE_ISBN;
+        }
+        return 0;
+    }
+
+    private static Set<String> grams(IndexedBook doc) {
+        Set<String> grams = new HashSet<>();
+        for (String field : new String[] { doc.title, doc.author, doc.isbn }) {
+            grams.addAll(bigrams(field));
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (isCjk(c)) {
+                    grams.add(String.valueOf(c));
+                }
+            }
+        }
+        return grams;
+    }
+
+    private static Set<String> bigrams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 2 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    private static class Postings {
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+        private final Map<Long, IndexedBook> documents = new ConcurrentHashMap<>();
+
+        void add(Book book) {
+            if (book == null || book.getBookId() == null) {
+                return;
+            }
+            remove(book.getBookId());
+            IndexedBook doc = new IndexedBook(book.getBookId(),
+                    normalize(book.getTitle()), normalize(book.getAuthor()), normalize(book.getIsbn()));
+            documents.put(doc.bookId, doc);
+            for (String gram : grams(doc)) {
+                postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(doc.bookId);
+            }
+        }
+
+        void remove(Long bookId) {
+            if (bookId == null) {
+                return;
+            }
+            IndexedBook doc = documents.remove(bookId);
+            if (doc == null) {
+                return;
+            }
+            for (String gram : grams(doc)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(bookId);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class IndexedBook {
+        private final Long bookId;
+        private final String title;
+        private final String author;
+        private final String isbn;
+
+        IndexedBook(Long bookId, String title, String author, String isbn) {
+            this.bookId = bookId;
+            this.title = title;
+            this.author = author;
+            this.isbn = isbn;
+        }
+    }
+
+    private static class ScoredHit {
+        private final IndexedBook doc;
+        private final int score;
+
+        ScoredHit(IndexedBook doc, int score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+}
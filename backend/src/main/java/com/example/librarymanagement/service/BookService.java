@@ -1,11 +1,27 @@
 package com.example.librarymanagement.service;
 
+import com.example.librarymanagement.config.CacheConfig;
 import com.example.librarymanagement.entity.Book;
 import com.example.librarymanagement.repository.BookRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @Service
 public class BookService {
@@ -13,20 +29,128 @@ public class BookService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private LibraryStatistics libraryStatistics;
+
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private StockConflictTracker stockConflictTracker;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    /**
+     * 同一关键字的并发检索合并为一次执行，共享结果列表
+     */
     public List<Book> searchBooks(String keyword) {
-        return bookRepository.searchBooks(keyword);
+        return libraryMetrics.time(LibraryMetrics.SEARCH,
+                () -> singleFlight.execute("search", keyword, () -> doSearchBooks(keyword)));
+    }
+
+    private List<Book> doSearchBooks(String keyword) {
+        // 空关键字或索引尚未构建时退回数据库 LIKE 查询
+        if (keyword == null || keyword.isEmpty() || !bookSearchIndex.isReady()) {
+            return bookRepository.searchBooks(keyword);
+        }
+        List<Long> ids = bookSearchIndex.search(keyword);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Book> booksById = new HashMap<>();
+        for (Book book : bookRepository.findAllById(ids)) {
+            booksById.put(book.getBookId(), book);
+        }
+        List<Book> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Book book = booksById.get(id);
+            if (book != null) {
+                results.add(book);
+            }
+        }
+        return results;
+    }
+
+    public void rebuildSearchIndex() {
+        bookSearchIndex.rebuild(bookRepository::findAll);
+    }
+
+    // 批量导入直接写表，缓存整体失效并重建检索索引
+    @CacheEvict(value = CacheConfig.BOOKS, allEntries = true)
+    public void afterBulkImport() {
+        rebuildSearchIndex();
     }
 
+    @Cacheable(value = CacheConfig.BOOKS, key = "#id", unless = "#result == null")
     public Book findById(Long id) {
         return bookRepository.findById(id).orElse(null);
     }
 
+    @CachePut(value = CacheConfig.BOOKS, key = "#result.bookId",
+              condition = "#result != null && #result.bookId != null")
     public Book save(Book book) {
-        return bookRepository.save(book);
+        boolean isNew = book.getBookId() == null;
+        Book saved = bookRepository.save(book);
+        bookSearchIndex.index(saved);
+        if (isNew) {
+            libraryStatistics.bookAdded();
+        }
+        return saved;
+    }
+
+    /**
+     * 读取最新记录、应用修改并按版本号提交，与其他写入冲突时重新读取再应用（有界重试）。
+     * expectedVersion 不为空且与当前版本不一致时抛出 VersionConflictException，不重试；
+     * 修改库存必须带 expectedVersion，否则同样抛出 VersionConflictException。
+     * 图书不存在时返回 null。
+     */
+    @CacheEvict(value = CacheConfig.BOOKS, key = "#bookId")
+    public Book update(Long bookId, Long expectedVersion, Consumer<Book> changes) {
+        Book saved = optimisticRetry.run("book_update", bookId, () -> transactionTemplate.execute(status -> {
+            Book book = bookRepository.findById(bookId).orElse(null);
+            if (book == null) {
+                return null;
+            }
+            if (expectedVersion != null && !expectedVersion.equals(book.getVersion())) {
+                throw new VersionConflictException("Book " + bookId + " was modified (version "
+                        + book.getVersion() + "), reload and retry");
+            }
+            Integer stock = book.getStock();
+            changes.accept(book);
+            // 库存是绝对值写入：不带版本号时重试会用旧值覆盖期间提交的借还
+            if (expectedVersion == null && !Objects.equals(stock, book.getStock())) {
+                throw new VersionConflictException("Changing stock of book " + bookId
+                        + " requires its current version (" + book.getVersion() + ")");
+            }
+            book.setUpdatedAt(LocalDateTime.now());
+            return bookRepository.saveAndFlush(book);
+        }));
+        if (saved != null) {
+            bookSearchIndex.index(saved);
+        }
+        return saved;
     }
 
+    @CacheEvict(value = CacheConfig.BOOKS, key = "#id")
     public void delete(Long id) {
-        bookRepository.deleteById(id);
+        // 只有确实删除了一行才减计数，删除不存在的ID不影响统计
+        if (bookRepository.deleteBookById(id) == 1) {
+            libraryStatistics.bookDeleted();
+        }
+        bookSearchIndex.remove(id);
     }
 
     public boolean isAvailable(Long bookId) {
@@ -34,27 +158,103 @@ public class BookService {
         return book != null && book.getStock() > 0;
     }
 
-    public void decreaseStock(Long bookId) {
-        Book book = findById(bookId);
-        if (book != null && book.getStock() > 0) {
-            book.setStock(book.getStock() - 1);
-            save(book);
+    // 库存由条件 UPDATE 直接修改，缓存中的副本需要失效
+    @CacheEvict(value = CacheConfig.BOOKS, key = "#bookId")
+    public boolean decreaseStock(Long bookId) {
+        return bookRepository.decrementStock(bookId) == 1;
+    }
+
+    @CacheEvict(value = CacheConfig.BOOKS, key = "#bookId")
+    public boolean increaseStock(Long bookId) {
+        return bookRepository.incrementStock(bookId) == 1;
+    }
+
+    /**
+     * 批量扣减库存，须在调用方事务中执行：一次加锁读取全部图书，再用一条 UPDATE 扣减所有有库存的图书。
+     * 返回 bookId -> 是否扣减成功；不存在的图书不在结果中。
+     */
+    public Map<Long, Boolean> reserveStock(Collection<Long> bookIds) {
+        Map<Long, Boolean> reserved = new HashMap<>();
+        if (bookIds.isEmpty()) {
+            return reserved;
         }
+        List<Long> available = new ArrayList<>();
+        for (Book book : bookRepository.lockAllById(bookIds)) {
+            boolean inStock = book.getStock() != null && book.getStock() > 0;
+            reserved.put(book.getBookId(), inStock);
+            if (inStock) {
+                available.add(book.getBookId());
+            }
+        }
+        if (!available.isEmpty()) {
+            // 行已锁定，受影响行数必须与加锁时看到的一致
+            int updated = bookRepository.decrementStockAll(available);
+            if (updated != available.size()) {
+                throw new IllegalStateException("Reserved " + updated + " of " + available.size() + " locked books");
+            }
+            evict(available);
+        }
+        return reserved;
     }
 
-    public void increaseStock(Long bookId) {
-        Book book = findById(bookId);
-        if (book != null) {
-            book.setStock(book.getStock() + 1);
-            save(book);
+    /**
+     * 批量归还库存，同一本书出现 n 次加 n；按出现次数分组，每组一条 UPDATE
+     */
+    public void releaseStock(Collection<Long> bookIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Long bookId : bookIds) {
+            counts.merge(bookId, 1, Integer::sum);
         }
+        Map<Integer, List<Long>> byCount = new TreeMap<>();
+        counts.forEach((bookId, count) -> byCount.computeIfAbsent(count, c -> new ArrayList<>()).add(bookId));
+        byCount.forEach((count, ids) -> bookRepository.incrementStockAll(ids, count));
+        evict(counts.keySet());
+    }
+
+    private void evict(Collection<Long> bookIds) {
+        Cache cache = cacheManager.getCache(CacheConfig.BOOKS);
+        if (cache != null) {
+            bookIds.forEach(cache::evict);
+        }
+    }
+
+    public List<Book> findAllById(List<Long> ids) {
+        return bookRepository.findAllById(ids);
     }
 
     public List<Book> findAll() {
         return bookRepository.findAll();
     }
 
+    public List<Book> findPage(long afterBookId, int limit) {
+        return bookRepository.findByBookIdGreaterThanOrderByBookIdAsc(afterBookId, PageRequest.of(0, limit));
+    }
+
     public long getTotalBooks() {
         return bookRepository.count();
     }
-}
\ No newline at end of file
+
+    public List<Map<String, Object>> getConflictHotspots(int limit) {
+        List<PopularBooksTracker.Estimate> top = stockConflictTracker.top(limit);
+        List<Long> ids = new ArrayList<>();
+        for (PopularBooksTracker.Estimate estimate : top) {
+            ids.add(estimate.getBookId());
+        }
+        Map<Long, String> titles = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Book book : bookRepository.findAllById(ids)) {
+                titles.put(book.getBookId(), book.getTitle());
+            }
+        }
+        List<Map<String, Object>> hotspots = new ArrayList<>();
+        for (PopularBooksTracker.Estimate estimate : top) {
+            Map<String, Object> hotspot = new HashMap<>();
+            hotspot.put("bookId", estimate.getBookId());
+            hotspot.put("title", titles.get(estimate.getBookId()));
+            hotspot.put("conflicts", estimate.getCount());
+            hotspot.put("maxError", estimate.getMaxError());
+            hotspots.add(hotspot);
+        }
+        return hotspots;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.librarymanagement.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 冷热分离：把归还时间早于 min-age-days 的借阅从 borrowings 搬到 borrowings_history。
+ * 按主键顺序分块，每块一个事务（INSERT ... SELECT + DELETE），热表只保留未归还和近期归还的记录。
+ * 已归还的记录不会再被修改，搬运过程不需要行锁。
+ */
+@Component
+public class BorrowingArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(BorrowingArchiver.class);
+
+    private static final String COLUMNS =
+            "borrowing_id, user_id, book_id, borrow_date, due_date, return_date, fine, created_at, updated_at, version";
+    private static final String ARCHIVABLE = "return_date IS NOT NULL AND return_date < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${library.archive.min-age-days:180}")
+    private int minAgeDays;
+
+    @Value("${library.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    private final ReentrantLock archiveLock = new ReentrantLock();
+
+    @Scheduled(cron = "${library.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        archive(minAgeDays);
+    }
+
+    /**
+     * 归档归还时间早于 olderThanDays 天前的借阅，返回搬运的行数。同一时刻只运行一个归档任务。
+     */
+    public long archive(int olderThanDays) {
+        if (!archiveLock.tryLock()) {
+            logger.info("Borrowing archive already running, skipped");
+            return 0;
+        }
+        try {
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(olderThanDays));
+            long moved = 0;
+            int chunk;
+            do {
+                Integer count = transactionTemplate.execute(status -> moveChunk(cutoff));
+                chunk = count != null ? count : 0;
+                moved += chunk;
+            } while (chunk == chunkSize);
+            if (moved > 0) {
+                logger.info("Archived " + moved + " borrowings returned before " + cutoff);
+            }
+            return moved;
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    private int moveChunk(Timestamp cutoff) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT borrowing_id FROM borrowings WHERE " + ARCHIVABLE + " ORDER BY borrowing_id LIMIT ?",
+                Long.class, cutoff, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // 块内最大主键作为上界：满足条件且主键不超过上界的行恰好就是这一块
+        Long upper = ids.get(ids.size() - 1);
+        int inserted = jdbcTemplate.update(
+                "INSERT INTO borrowings_history (" + COLUMNS + ", archived_at) SELECT " + COLUMNS + ", ? "
+                + "FROM borrowings WHERE " + ARCHIVABLE + " AND borrowing_id <= ?",
+                Timestamp.valueOf(LocalDateTime.now()), cutoff, upper);
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM borrowings WHERE " + ARCHIVABLE + " AND borrowing_id <= ?", cutoff, upper);
+        if (inserted != deleted) {
+            throw new IllegalStateException("Archive chunk mismatch: inserted " + inserted + ", deleted " + deleted);
+        }
+        return deleted;
+    }
+}
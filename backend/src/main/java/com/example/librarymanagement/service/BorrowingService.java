@@ -1,29 +1,104 @@
 package com.example.librarymanagement.service;
 
+import com.example.librarymanagement.config.ReplicaReads;
+import com.example.librarymanagement.dto.BatchResult;
+import com.example.librarymanagement.dto.BorrowingView;
+import com.example.librarymanagement.entity.Book;
 import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.repository.BorrowingHistoryRepository;
 import com.example.librarymanagement.repository.BorrowingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
+/**
+ * 报表和管理端列表经 ReplicaReads 执行，配置了只读副本时由 ReadWriteRoutingDataSource 路由到副本；
+ * 借还书、用户自己的借阅历史（需读到刚写入的数据）和其余仓库读取留在主库。
+ */
 @Service
 public class BorrowingService {
 
+    static final String INSERT_SQL = "INSERT INTO borrowings "
+            + "(user_id, book_id, borrow_date, due_date, fine, created_at, updated_at, version) "
+            + "VALUES (?, ?, ?, ?, 0, ?, ?, 0)";
+
     @Autowired
     private BorrowingRepository borrowingRepository;
 
+    @Autowired
+    private BorrowingHistoryRepository borrowingHistoryRepository;
+
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private LibraryStatistics libraryStatistics;
+
+    @Autowired
+    private DueDateIndex dueDateIndex;
+
+    @Autowired
+    private PopularBooksTracker popularBooksTracker;
+
+    @Autowired
+    private CoBorrowingIndex coBorrowingIndex;
+
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    // 报表查询：配置了副本时路由到副本
+    @Autowired
+    private ReplicaReads replicaReads;
+
+    @Value("${library.borrow.batch-max-items:20}")
+    private int batchMaxItems;
+
+    @Transactional
     public Borrowing borrowBook(Long userId, Long bookId) {
-        if (!bookService.isAvailable(bookId)) {
+        return libraryMetrics.time(LibraryMetrics.BORROW, () -> doBorrowBook(userId, bookId));
+    }
+
+    private Borrowing doBorrowBook(Long userId, Long bookId) {
+        // 单条条件 UPDATE 同时完成库存检查和扣减
+        if (!bookService.decreaseStock(bookId)) {
+            libraryMetrics.borrowRejected("out_of_stock");
             throw new RuntimeException("Book not available");
         }
         Borrowing borrowing = new Borrowing();
@@ -31,70 +106,407 @@ public class BorrowingService {
         borrowing.setBookId(bookId);
         borrowing.setBorrowDate(LocalDateTime.now());
         borrowing.setDueDate(LocalDateTime.now().plusDays(14)); // 14 days loan period
-        bookService.decreaseStock(bookId);
-        return borrowingRepository.save(borrowing);
+        Borrowing saved = borrowingRepository.save(borrowing);
+        afterCommit(() -> borrowed(saved));
+        return saved;
+    }
+
+    /**
+     * 购物车式批量借书：一次加锁读取并用一条 UPDATE 扣减全部有库存的图书，借阅记录一次批量插入。
+     * 缺货或不存在的图书逐条拒绝，不影响其余图书；同一请求中重复的 bookId 只借一本。
+     */
+    @Transactional
+    public BatchResult borrowBooks(Long userId, List<Long> bookIds) {
+        checkBatchSize(bookIds);
+        return libraryMetrics.time(LibraryMetrics.BORROW_BATCH, () -> doBorrowBooks(userId, bookIds));
+    }
+
+    private BatchResult doBorrowBooks(Long userId, List<Long> bookIds) {
+        Set<Long> distinct = new LinkedHashSet<>();
+        for (Long bookId : bookIds) {
+            if (bookId != null) {
+                distinct.add(bookId);
+            }
+        }
+        Map<Long, Boolean> reserved = bookService.reserveStock(distinct);
+        LocalDateTime now = LocalDateTime.now();
+        List<Borrowing> borrowings = new ArrayList<>();
+        for (Long bookId : distinct) {
+            if (Boolean.TRUE.equals(reserved.get(bookId))) {
+                Borrowing borrowing = new Borrowing();
+                borrowing.setUserId(userId);
+                borrowing.setBookId(bookId);
+                borrowing.setBorrowDate(now);
+                borrowing.setDueDate(now.plusDays(14)); // 14 days loan period
+                borrowing.setCreatedAt(now);
+                borrowing.setUpdatedAt(now);
+                borrowing.setVersion(0L);
+                borrowings.add(borrowing);
+            }
+        }
+        insertAll(borrowings);
+
+        Map<Long, Borrowing> byBook = new HashMap<>();
+        for (Borrowing borrowing : borrowings) {
+            byBook.put(borrowing.getBookId(), borrowing);
+        }
+        afterCommit(() -> borrowings.forEach(this::borrowed));
+        BatchResult result = new BatchResult();
+        Set<Long> seen = new HashSet<>();
+        for (Long bookId : bookIds) {
+            if (bookId == null) {
+                result.reject(null, "Missing bookId");
+            } else if (!seen.add(bookId)) {
+                result.reject(bookId, "Duplicate book in request");
+            } else if (!reserved.containsKey(bookId)) {
+                result.reject(bookId, "Book not found");
+            } else if (!reserved.get(bookId)) {
+                libraryMetrics.borrowRejected("out_of_stock");
+                result.reject(bookId, "Book not available");
+            } else {
+                result.success(bookId, byBook.get(bookId));
+            }
+        }
+        return result;
+    }
+
+    // IDENTITY 主键使 Hibernate 无法批量插入，改用 JDBC 批量插入并取回自增主键
+    private void insertAll(List<Borrowing> borrowings) {
+        if (borrowings.isEmpty()) {
+            return;
+        }
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[] { "borrowing_id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Borrowing borrowing = borrowings.get(i);
+                        ps.setLong(1, borrowing.getUserId());
+                        ps.setLong(2, borrowing.getBookId());
+                        ps.setTimestamp(3, Timestamp.valueOf(borrowing.getBorrowDate()));
+                        ps.setTimestamp(4, Timestamp.valueOf(borrowing.getDueDate()));
+                        ps.setTimestamp(5, Timestamp.valueOf(borrowing.getCreatedAt()));
+                        ps.setTimestamp(6, Timestamp.valueOf(borrowing.getUpdatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return borrowings.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        if (keyList.size() != borrowings.size()) {
+            throw new IllegalStateException("Expected " + borrowings.size() + " generated keys, got " + keyList.size());
+        }
+        for (int i = 0; i < borrowings.size(); i++) {
+            borrowings.get(i).setBorrowingId(((Number) keyList.get(i).values().iterator().next()).longValue());
+        }
     }
 
     public Borrowing returnBook(Long borrowingId) {
+        return returnBook(borrowingId, null);
+    }
+
+    /**
+     * expectedUserId 不为空时只允许归还该用户自己的借阅。
+     * 并发归还同一条借阅时版本号冲突的一方重新读取，随后按“已归还”拒绝，库存只增加一次。
+     */
+    public Borrowing returnBook(Long borrowingId, Long expectedUserId) {
+        return optimisticRetry.run("return", e -> bookIdOf(borrowingId), () -> transactionTemplate.execute(status ->
+                libraryMetrics.time(LibraryMetrics.RETURN, () -> doReturnBook(borrowingId, expectedUserId))));
+    }
+
+    private Borrowing doReturnBook(Long borrowingId, Long expectedUserId) {
         Borrowing borrowing = borrowingRepository.findById(borrowingId).orElse(null);
-        if (borrowing == null || borrowing.getReturnDate() != null) {
+        if (borrowing == null || borrowing.getReturnDate() != null
+                || (expectedUserId != null && !expectedUserId.equals(borrowing.getUserId()))) {
             throw new RuntimeException("Invalid borrowing record");
         }
         borrowing.setReturnDate(LocalDateTime.now());
-        if (borrowing.getReturnDate().isAfter(borrowing.getDueDate())) {
-            long daysOverdue = ChronoUnit.DAYS.between(borrowing.getDueDate(), borrowing.getReturnDate());
-            borrowing.setFine(BigDecimal.valueOf(daysOverdue * 0.5)); // 0.5 per day
+        BigDecimal fine = calculateFine(borrowing.getDueDate(), borrowing.getReturnDate());
+        if (fine != null) {
+            borrowing.setFine(fine);
         }
         bookService.increaseStock(borrowing.getBookId());
-        return borrowingRepository.save(borrowing);
+        Borrowing saved = borrowingRepository.save(borrowing);
+        // 立即刷新：版本冲突在提交前暴露，触发重试
+        borrowingRepository.flush();
+        afterCommit(() -> returned(borrowingId));
+        return saved;
     }
 
-    public List<Borrowing> getBorrowingsByUser(Long userId) {
-        return borrowingRepository.findByUserId(userId);
+    /**
+     * 批量还书：一次按主键读取全部借阅，库存按图书分组用集合 UPDATE 归还，借阅记录在同一事务中批量更新。
+     * 无效、已归还或不属于 expectedUserId 的借阅逐条拒绝。版本冲突时整批重新读取重试。
+     */
+    public BatchResult returnBooks(List<Long> borrowingIds, Long expectedUserId) {
+        checkBatchSize(borrowingIds);
+        Map<Long, Long> readVersions = new HashMap<>();
+        return optimisticRetry.run("return", e -> conflictBook(readVersions), () -> transactionTemplate.execute(status ->
+                libraryMetrics.time(LibraryMetrics.RETURN_BATCH,
+                        () -> doReturnBooks(borrowingIds, expectedUserId, readVersions))));
+    }
+
+    // 批量刷新的冲突异常不带主键：重新读取本次尝试归还的借阅，版本号已变的那条即冲突行，计入其所借图书
+    private Long conflictBook(Map<Long, Long> readVersions) {
+        for (Borrowing current : borrowingRepository.findAllById(readVersions.keySet())) {
+            if (!Objects.equals(readVersions.get(current.getBorrowingId()), current.getVersion())) {
+                return current.getBookId();
+            }
+        }
+        return null;
+    }
+
+    private Long bookIdOf(Long borrowingId) {
+        return borrowingRepository.findById(borrowingId).map(Borrowing::getBookId).orElse(null);
+    }
+
+    private BatchResult doReturnBooks(List<Long> borrowingIds, Long expectedUserId, Map<Long, Long> readVersions) {
+        Set<Long> distinct = new LinkedHashSet<>();
+        for (Long borrowingId : borrowingIds) {
+            if (borrowingId != null) {
+                distinct.add(borrowingId);
+            }
+        }
+        Map<Long, Borrowing> byId = new HashMap<>();
+        readVersions.clear();
+        for (Borrowing borrowing : borrowingRepository.findAllById(distinct)) {
+            byId.put(borrowing.getBorrowingId(), borrowing);
+            readVersions.put(borrowing.getBorrowingId(), borrowing.getVersion());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        BatchResult result = new BatchResult();
+        List<Borrowing> returned = new ArrayList<>();
+        List<Long> bookIds = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (Long borrowingId : borrowingIds) {
+            Borrowing borrowing = borrowingId != null ? byId.get(borrowingId) : null;
+            if (borrowingId != null && !seen.add(borrowingId)) {
+                result.reject(borrowingId, "Duplicate borrowing in request");
+            } else if (borrowing == null || borrowing.getReturnDate() != null
+                    || (expectedUserId != null && !expectedUserId.equals(borrowing.getUserId()))) {
+                result.reject(borrowingId, "Invalid borrowing record");
+            } else {
+                borrowing.setReturnDate(now);
+                BigDecimal fine = calculateFine(borrowing.getDueDate(), now);
+                if (fine != null) {
+                    borrowing.setFine(fine);
+                }
+                returned.add(borrowing);
+                bookIds.add(borrowing.getBookId());
+                result.success(borrowingId, borrowing);
+            }
+        }
+        if (returned.isEmpty()) {
+            return result;
+        }
+        bookService.releaseStock(bookIds);
+        borrowingRepository.saveAll(returned);
+        // 立即刷新：版本冲突在提交前暴露，触发重试
+        borrowingRepository.flush();
+        afterCommit(() -> returned.forEach(borrowing -> returned(borrowing.getBorrowingId())));
+        return result;
+    }
+
+    // 内存索引与计数只反映已提交的借还：回滚（含乐观锁重试前的那次）不留下痕迹，重试也不会重复计数
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void borrowed(Borrowing borrowing) {
+        dueDateIndex.add(borrowing);
+        popularBooksTracker.recordBorrow(borrowing.getBookId(), borrowing.getBorrowDate());
+        coBorrowingIndex.recordBorrow(borrowing.getUserId(), borrowing.getBookId(), borrowing.getBorrowingId());
+        libraryStatistics.bookBorrowed();
+    }
+
+    private void returned(Long borrowingId) {
+        dueDateIndex.remove(borrowingId);
+        libraryStatistics.bookReturned();
+    }
+
+    private void checkBatchSize(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one item");
+        }
+        if (ids.size() > batchMaxItems) {
+            throw new IllegalArgumentException("Batch exceeds " + batchMaxItems + " items");
+        }
+    }
+
+    /**
+     * 逾期罚款：每天 0.5 元；未逾期返回 null
+     */
+    public static BigDecimal calculateFine(LocalDateTime dueDate, LocalDateTime returnDate) {
+        if (!returnDate.isAfter(dueDate)) {
+            return null;
+        }
+        long daysOverdue = ChronoUnit.DAYS.between(dueDate, returnDate);
+        return BigDecimal.valueOf(daysOverdue * 0.5); // 0.5 per day
     }
 
     public List<Borrowing> getAllBorrowings() {
-        return borrowingRepository.findAll();
+        return replicaReads.execute(() -> borrowingRepository.findAll());
     }
 
-    public long getTotalBorrowings() {
-        return borrowingRepository.count();
+    public List<BorrowingView> getBorrowingViewsByUser(Long userId) {
+        return borrowingRepository.findViewsByUserId(userId);
     }
 
-    public long getActiveBorrowingsCount() {
-        return borrowingRepository.findByReturnDateIsNull().size();
+    public List<BorrowingView> getBorrowingsPage(long afterBorrowingId, int limit) {
+        return replicaReads.execute(() ->
+                borrowingRepository.findViewsAfter(afterBorrowingId, PageRequest.of(0, limit)));
+    }
+
+    /**
+     * 逾期记录的一页。索引就绪时从应还日期索引取ID，再按主键读取仍未归还的记录；
+     * 索引中已在其他节点归还的借阅被过滤掉时继续向后取，保证页满或取尽。
+     */
+    public List<BorrowingView> getOverdueRecordsPage(long afterBorrowingId, int limit) {
+        return replicaReads.execute(() -> doGetOverdueRecordsPage(afterBorrowingId, limit));
     }
 
-    public List<Borrowing> getOverdueRecords() {
+    private List<BorrowingView> doGetOverdueRecordsPage(long afterBorrowingId, int limit) {
         LocalDateTime now = LocalDateTime.now();
-        List<Borrowing> allBorrowings = borrowingRepository.findByReturnDateIsNull();
-        List<Borrowing> overdueRecords = new ArrayList<>();
-        for (Borrowing b : allBorrowings) {
-            if (b.getDueDate().isBefore(now)) {
-                overdueRecords.add(b);
+        if (!dueDateIndex.isReady()) {
+            return borrowingRepository.findOverdueViewsAfter(now, afterBorrowingId, PageRequest.of(0, limit));
+        }
+        List<BorrowingView> page = new ArrayList<>();
+        long after = afterBorrowingId;
+        while (page.size() < limit) {
+            List<Long> ids = dueDateIndex.overdueIdsAfter(now, after, limit - page.size());
+            if (ids.isEmpty()) {
+                break;
             }
+            page.addAll(borrowingRepository.findOpenViewsByIds(ids));
+            after = ids.get(ids.size() - 1);
         }
-        return overdueRecords;
+        return page;
+    }
+
+    public long getTotalBorrowings() {
+        return borrowingRepository.count() + borrowingHistoryRepository.count();
+    }
+
+    public long getActiveBorrowingsCount() {
+        return borrowingRepository.countByReturnDateIsNull();
+    }
+
+    @Scheduled(fixedDelayString = "${library.overdue.rebuild-interval-ms:300000}",
+               initialDelayString = "${library.overdue.rebuild-interval-ms:300000}")
+    public void rebuildDueDateIndex() {
+        long since = dueDateIndex.sequence();
+        dueDateIndex.rebuild(borrowingRepository.findOpenLoanDueDates(), LocalDateTime.now(), since);
     }
 
     public long getOverdueCount() {
-        return getOverdueRecords().size();
+        return replicaReads.execute(() ->
+                borrowingRepository.countByReturnDateIsNullAndDueDateBefore(LocalDateTime.now()));
     }
 
     public List<Map<String, Object>> getPopularBooks() {
-        List<Object[]> results = borrowingRepository.getPopularBooks();
+        return replicaReads.execute(() -> toPopularBooks(borrowingRepository.getPopularBooks()));
+    }
+
+    /**
+     * window 取值 all / 30d / 7d。默认使用流式 Top-K 估计，exact 为 true 时走 GROUP BY 精确查询用于核对。
+     * 相同参数的并发调用合并为一次只读事务执行。
+     */
+    public List<Map<String, Object>> getPopularBooks(String window, boolean exact) {
+        return singleFlight.execute("popular_books", window + ":" + exact,
+                () -> replicaReads.execute(() -> doGetPopularBooks(window, exact)));
+    }
+
+    private List<Map<String, Object>> doGetPopularBooks(String window, boolean exact) {
+        int days = windowDays(window);
+        if (exact || !popularBooksTracker.isReady()) {
+            if (days == 0) {
+                return getPopularBooks();
+            }
+            LocalDateTime since = LocalDate.now().minusDays(days - 1).atStartOfDay();
+            return toPopularBooks(borrowingRepository.getPopularBooksSince(since));
+        }
+        List<PopularBooksTracker.Estimate> top = popularBooksTracker.top(10, days, LocalDate.now());
+        List<Long> ids = new ArrayList<>();
+        for (PopularBooksTracker.Estimate estimate : top) {
+            ids.add(estimate.getBookId());
+        }
+        Map<Long, String> titles = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Book book : bookService.findAllById(ids)) {
+                titles.put(book.getBookId(), book.getTitle());
+            }
+        }
+        List<Map<String, Object>> popularBooks = new ArrayList<>();
+        for (PopularBooksTracker.Estimate estimate : top) {
+            Map<String, Object> book = new HashMap<>();
+            book.put("bookId", estimate.getBookId());
+            book.put("title", titles.get(estimate.getBookId()));
+            book.put("borrowCount", estimate.getCount());
+            book.put("maxError", estimate.getMaxError());
+            popularBooks.add(book);
+        }
+        return popularBooks;
+    }
+
+    public void rebuildPopularBooksTracker() {
+        LocalDateTime since = LocalDate.now().minusDays(PopularBooksTracker.MAX_WINDOW_DAYS - 1).atStartOfDay();
+        Map<Long, Long> counts = new HashMap<>();
+        for (List<Object[]> rows : List.of(borrowingRepository.countBorrowsByBook(),
+                borrowingHistoryRepository.countBorrowsByBook())) {
+            for (Object[] row : rows) {
+                counts.merge((Long) row[0], ((Number) row[1]).longValue(), Long::sum);
+            }
+        }
+        List<Object[]> allTimeCounts = new ArrayList<>(counts.size());
+        counts.forEach((bookId, count) -> allTimeCounts.add(new Object[] { bookId, count }));
+        List<Object[]> recentBorrows = new ArrayList<>(borrowingRepository.findBorrowDatesSince(since));
+        recentBorrows.addAll(borrowingHistoryRepository.findBorrowDatesSince(since));
+        popularBooksTracker.rebuild(allTimeCounts, recentBorrows);
+    }
+
+    private static int windowDays(String window) {
+        if (window == null || window.isEmpty() || "all".equals(window)) {
+            return 0;
+        }
+        if ("30d".equals(window)) {
+            return 30;
+        }
+        if ("7d".equals(window)) {
+            return 7;
+        }
+        throw new IllegalArgumentException("Unsupported window: " + window);
+    }
+
+    private List<Map<String, Object>> toPopularBooks(List<Object[]> results) {
         List<Map<String, Object>> popularBooks = new ArrayList<>();
         for (Object[] row : results) {
             Map<String, Object> book = new HashMap<>();
             book.put("bookId", row[0]);
             book.put("title", row[1]);
             book.put("borrowCount", row[2]);
+            book.put("maxError", 0L);
             popularBooks.add(book);
         }
         return popularBooks;
     }
 
+    // 合并并发调用；合并发生在事务之外，等待结果的调用不占用数据库连接
     public List<Map<String, Object>> getUserBorrowingStats() {
+        return singleFlight.execute("user_borrowing_stats", null,
+                () -> replicaReads.execute(this::doGetUserBorrowingStats));
+    }
+
+    private List<Map<String, Object>> doGetUserBorrowingStats() {
         List<Object[]> results = borrowingRepository.getUserBorrowingStats();
         List<Map<String, Object>> stats = new ArrayList<>();
         for (Object[] row : results) {
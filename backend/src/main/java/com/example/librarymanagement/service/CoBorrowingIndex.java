@@ -0,0 +1,438 @@
+package com.example.librarymanagement.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * “借过这本书的读者还借了”：图书-图书共现矩阵，行按 bookId 稀疏存储（long 键开放寻址表，无装箱）。
+ * 由 RecommendationService 分区并行构建后整体替换；每次借书增量更新。
+ * 借书事件只入队，由后台单线程成批取出、一次加写锁应用，借书请求不等待矩阵更新。
+ * 重建期间事件留在队列中，新矩阵装入后重放快照之后（borrowingId 更大）的部分。
+ * 每位读者只保留最近 maxBooksPerUser 本不同的书参与配对，防止借阅量极大的账号让矩阵按平方膨胀。
+ */
+@Component
+public class CoBorrowingIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 待应用的借书事件 [userId, bookId, borrowingId]
+    private final ConcurrentLinkedQueue<long[]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ExecutorService updater = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "co-borrowing-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Matrix matrix;
+    private volatile boolean rebuilding;
+
+    /**
+     * 开始重建：此后的借书事件在新矩阵装入前留在队列中
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 装入新矩阵并重放排队事件中 borrowingId 大于快照上界 maxBorrowingId 的部分
+     */
+    public void install(Matrix built, long maxBorrowingId) {
+        lock.writeLock().lock();
+        try {
+            long[] event;
+            while ((event = pending.poll()) != null) {
+                if (event[2] > maxBorrowingId) {
+                    built.addBorrow(event[0], event[1]);
+                }
+            }
+            matrix = built;
+            rebuilding = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 放弃重建：排队的事件照常应用到旧矩阵
+     */
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuilding = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleDrain();
+    }
+
+    public void recordBorrow(Long userId, Long bookId, Long borrowingId) {
+        if (userId == null || bookId == null || borrowingId == null) {
+            return;
+        }
+        pending.add(new long[] { userId, bookId, borrowingId });
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            updater.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        // 先清标记再取队列：取的过程中新入队的事件会再安排一次
+        drainScheduled.set(false);
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                return;
+            }
+            long[] event;
+            while ((event = pending.poll()) != null) {
+                if (matrix != null) {
+                    matrix.addBorrow(event[0], event[1]);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 等待已入队的借书事件应用完毕（重建期间的事件仍留在队列中）
+     */
+    void awaitUpdates() {
+        try {
+            updater.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        updater.shutdown();
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return matrix != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 与 bookId 共同被借阅最多的图书，按余弦相似度 共同读者数 / sqrt(读者数A * 读者数B) 降序。
+     * 只扫描该书的一行，耗时与这本书的共现图书数成正比，与借阅总量无关。
+     */
+    public List<Related> related(long bookId, int limit) {
+        lock.readLock().lock();
+        try {
+            if (matrix == null || limit <= 0) {
+                return new ArrayList<>();
+            }
+            LongIntMap row = matrix.pairs.get(bookId);
+            if (row == null) {
+                return new ArrayList<>();
+            }
+            double readers = matrix.readers.get(bookId);
+            PriorityQueue<Related> top = new PriorityQueue<>(limit + 1, Related.BY_RANK);
+            row.forEach((other, count) -> {
+                double score = count / Math.sqrt(readers * Math.max(1, matrix.readers.get(other)));
+                Related candidate = new Related(other, count, score);
+                if (top.size() < limit) {
+                    top.add(candidate);
+                } else if (Related.BY_RANK.compare(candidate, top.peek()) > 0) {
+                    top.poll();
+                    top.add(candidate);
+                }
+            });
+            List<Related> result = new ArrayList<>(top);
+            result.sort(Related.BY_RANK.reversed());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static class Related {
+        // 分数相同时共同读者多的优先，再按 bookId 保证结果稳定
+        static final Comparator<Related> BY_RANK = Comparator
+                .comparingDouble((Related r) -> r.score)
+                .thenComparingInt(r -> r.coBorrowers)
+                .thenComparing((Related r) -> r.bookId, Comparator.reverseOrder());
+
+        private final long bookId;
+        private final int coBorrowers;
+        private final double score;
+
+        Related(long bookId, int coBorrowers, double score) {
+            this.bookId = bookId;
+            this.coBorrowers = coBorrowers;
+            this.score = score;
+        }
+
+        public long getBookId() { return bookId; }
+
+        public int getCoBorrowers() { return coBorrowers; }
+
+        public double getScore() { return score; }
+    }
+
+    /**
+     * 共现矩阵本体。构建阶段每个分区各自持有一个实例，单线程写入，最后 merge 合并；
+     * 装入 CoBorrowingIndex 后由其读写锁保护。
+     */
+    public static final class Matrix {
+        private final LongObjectMap<LongIntMap> pairs = new LongObjectMap<>();
+        private final LongIntMap readers = new LongIntMap();
+        // 读者最近借过的不同图书，最新的在前
+        private final LongObjectMap<long[]> userBooks = new LongObjectMap<>();
+        private final int maxBooksPerUser;
+
+        public Matrix(int maxBooksPerUser) {
+            this.maxBooksPerUser = maxBooksPerUser;
+        }
+
+        /**
+         * 构建时加入一位读者的全部图书：books 已去重、最新在前、长度不超过 maxBooksPerUser
+         */
+        public void addUser(long userId, long[] books) {
+            if (userId <= 0 || books.length == 0) {
+                return;
+            }
+            userBooks.put(userId, books);
+            for (int i = 0; i < books.length; i++) {
+                readers.add(books[i], 1);
+                LongIntMap row = row(books[i]);
+                for (int j = 0; j < books.length; j++) {
+                    if (i != j) {
+                        row.add(books[j], 1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 一次新的借阅；读者以前借过这本书时不改变共现计数
+         */
+        public void addBorrow(long userId, long bookId) {
+            if (userId <= 0 || bookId <= 0) {
+                return;
+            }
+            long[] books = userBooks.get(userId);
+            if (books == null) {
+                books = new long[0];
+            }
+            for (long book : books) {
+                if (book == bookId) {
+                    return;
+                }
+            }
+            readers.add(bookId, 1);
+            LongIntMap row = row(bookId);
+            for (long book : books) {
+                row.add(book, 1);
+                row(book).add(bookId, 1);
+            }
+            int keep = Math.min(books.length, maxBooksPerUser - 1);
+            long[] updated = new long[keep + 1];
+            updated[0] = bookId;
+            System.arraycopy(books, 0, updated, 1, keep);
+            userBooks.put(userId, updated);
+        }
+
+        /**
+         * 合并另一个分区的结果；两个分区的读者不相交
+         */
+        public void merge(Matrix other) {
+            other.userBooks.forEach((books, userId) -> userBooks.put(userId, books));
+            other.readers.forEach(readers::add);
+            other.pairs.forEach((otherRow, bookId) -> {
+                LongIntMap row = pairs.get(bookId);
+                if (row == null) {
+                    pairs.put(bookId, otherRow);
+                } else {
+                    otherRow.forEach(row::add);
+                }
+            });
+        }
+
+        public int coBorrowers(long bookId, long otherBookId) {
+            LongIntMap row = pairs.get(bookId);
+            return row != null ? row.get(otherBookId) : 0;
+        }
+
+        public int readers(long bookId) {
+            return readers.get(bookId);
+        }
+
+        public int bookCount() {
+            return pairs.size();
+        }
+
+        public int userCount() {
+            return userBooks.size();
+        }
+
+        private LongIntMap row(long bookId) {
+            LongIntMap row = pairs.get(bookId);
+            if (row == null) {
+                row = new LongIntMap();
+                pairs.put(bookId, row);
+            }
+            return row;
+        }
+    }
+
+    interface LongIntConsumer {
+        void accept(long key, int value);
+    }
+
+    /**
+     * long -> int 开放寻址表（线性探测）。键 0 表示空槽，bookId/userId 都是正数自增主键。
+     */
+    static final class LongIntMap {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap() {
+            keys = new long[4];
+            values = new int[4];
+        }
+
+        int get(long key) {
+            int slot = slot(keys, key);
+            return keys[slot] == key ? values[slot] : 0;
+        }
+
+        void add(long key, int delta) {
+            int slot = slot(keys, key);
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            keys[slot] = key;
+            values[slot] = delta;
+            // 负载因子 0.5，探测链保持很短
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(LongIntConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    consumer.accept(keys[i], values[i]);
+                }
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * long -> 对象 开放寻址表，键 0 表示空槽
+     */
+    static final class LongObjectMap<V> {
+        private long[] keys = new long[16];
+        private Object[] values = new Object[16];
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        V get(long key) {
+            int slot = slot(keys, key);
+            return keys[slot] == key ? (V) values[slot] : null;
+        }
+
+        void put(long key, V value) {
+            int slot = slot(keys, key);
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(ObjLongConsumer<V> consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    consumer.accept((V) values[i], keys[i]);
+                }
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    // 返回 key 所在槽或第一个空槽；表长为 2 的幂且始终有空槽
+    private static int slot(long[] keys, long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.Borrowing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 未归还借阅按应还日期排序的内存索引。
+ * “当前逾期”是一次有序范围读取；定时推进水位线，越过应还日期的借阅会立即发布 {@link LoanOverdueEvent}。
+ * 借还只在本节点增量维护，多节点部署时依赖定期重建与数据库对齐。
+ */
+@Component
+public class DueDateIndex {
+
+    private static final Comparator<OpenLoan> DUE_ORDER =
+            Comparator.comparing((OpenLoan l) -> l.dueDate).thenComparingLong(l -> l.borrowingId);
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final NavigableSet<OpenLoan> byDueDate = new ConcurrentSkipListSet<>(DUE_ORDER);
+    private final Map<Long, OpenLoan> byId = new ConcurrentHashMap<>();
+    // 应还日期早于水位线的借阅ID，按ID排序，供逾期列表按 borrowingId 游标分页
+    private final NavigableSet<Long> overdueById = new ConcurrentSkipListSet<>();
+    private final AtomicLong overdueCount = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile LocalDateTime watermark;
+    private volatile boolean ready = false;
+
+    /**
+     * 供重建使用：在读取数据库快照之前取得，之后本节点新增的借阅在重建时保留
+     */
+    public long sequence() {
+        return sequence.get();
+    }
+
+    public void rebuild(List<Object[]> rows, LocalDateTime now) {
+        rebuild(rows, now, sequence());
+    }
+
+    /**
+     * rows 为 [borrowingId, userId, bookId, dueDate] 投影，由定时任务周期性重建以吸收其他节点的借还。
+     * since 为读取 rows 之前的 {@link #sequence()}，此后 add 的借阅不在快照中，予以保留；
+     * 水位线不回退，重建前尚未发布的逾期事件在下一次推进时发布。
+     */
+    public synchronized void rebuild(List<Object[]> rows, LocalDateTime now, long since) {
+        LocalDateTime mark = watermark != null && watermark.isBefore(now) ? watermark : now;
+        List<OpenLoan> recent = new ArrayList<>();
+        for (OpenLoan loan : byId.values()) {
+            if (loan.sequence > since) {
+                recent.add(loan);
+            }
+        }
+        byDueDate.clear();
+        byId.clear();
+        overdueById.clear();
+        for (Object[] row : rows) {
+            OpenLoan loan = new OpenLoan((Long) row[0], (Long) row[1], (Long) row[2], (LocalDateTime) row[3], 0);
+            byDueDate.add(loan);
+            byId.put(loan.borrowingId, loan);
+        }
+        for (OpenLoan loan : recent) {
+            byDueDate.add(loan);
+            byId.put(loan.borrowingId, loan);
+        }
+        NavigableSet<OpenLoan> overdue = byDueDate.headSet(probe(mark), false);
+        for (OpenLoan loan : overdue) {
+            overdueById.add(loan.borrowingId);
+        }
+        overdueCount.set(overdue.size());
+        watermark = mark;
+        ready = true;
+    }
+
+    public synchronized void add(Borrowing borrowing) {
+        if (borrowing == null || borrowing.getBorrowingId() == null || borrowing.getDueDate() == null) {
+            return;
+        }
+        remove(borrowing.getBorrowingId());
+        OpenLoan loan = new OpenLoan(borrowing.getBorrowingId(), borrowing.getUserId(),
+                borrowing.getBookId(), borrowing.getDueDate(), sequence.incrementAndGet());
+        byDueDate.add(loan);
+        byId.put(loan.borrowingId, loan);
+        if (isPastWatermark(loan)) {
+            overdueById.add(loan.borrowingId);
+            overdueCount.incrementAndGet();
+        }
+    }
+
+    public synchronized void remove(Long borrowingId) {
+        OpenLoan loan = borrowingId != null ? byId.remove(borrowingId) : null;
+        if (loan == null) {
+            return;
+        }
+        byDueDate.remove(loan);
+        if (overdueById.remove(loan.borrowingId)) {
+            overdueCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 推进水位线，为 [上次水位线, now) 之间到期的借阅发布逾期事件。
+     */
+    @Scheduled(fixedRateString = "${library.overdue.tick-ms:1000}")
+    public void tick() {
+        if (ready) {
+            advance(LocalDateTime.now());
+        }
+    }
+
+    void advance(LocalDateTime now) {
+        List<OpenLoan> crossed;
+        synchronized (this) {
+            LocalDateTime from = watermark;
+            if (from == null || !now.isAfter(from)) {
+                return;
+            }
+            crossed = new ArrayList<>(byDueDate.subSet(probe(from), true, probe(now), false));
+            for (OpenLoan loan : crossed) {
+                overdueById.add(loan.borrowingId);
+            }
+            watermark = now;
+            overdueCount.addAndGet(crossed.size());
+        }
+        // 监听器可能访问数据库，在锁外发布事件
+        for (OpenLoan loan : crossed) {
+            eventPublisher.publishEvent(new LoanOverdueEvent(loan.borrowingId, loan.userId, loan.bookId, loan.dueDate));
+        }
+    }
+
+    /**
+     * 当前时刻已逾期的借阅ID，按应还日期升序。
+     */
+    public List<Long> overdueIds(LocalDateTime now) {
+        List<Long> ids = new ArrayList<>();
+        for (OpenLoan loan : byDueDate.headSet(probe(now), false)) {
+            ids.add(loan.borrowingId);
+        }
+        return ids;
+    }
+
+    /**
+     * 管理员逾期列表的一页：已逾期且 borrowingId 大于 afterId 的借阅ID，按 borrowingId 升序，最多 limit 条
+     */
+    public List<Long> overdueIdsAfter(LocalDateTime now, long afterId, int limit) {
+        // 水位线之后、now 之前到期的借阅还未进入 overdueById，范围只有一个 tick，单独取出合并
+        LocalDateTime mark = watermark;
+        NavigableSet<Long> pending = new TreeSet<>();
+        if (mark != null && now.isAfter(mark)) {
+            for (OpenLoan loan : byDueDate.subSet(probe(mark), true, probe(now), false)) {
+                if (loan.borrowingId > afterId) {
+                    pending.add(loan.borrowingId);
+                }
+            }
+        }
+        List<Long> ids = new ArrayList<>(limit);
+        Iterator<Long> overdue = overdueById.tailSet(afterId, false).iterator();
+        Long next = nextDueBefore(overdue, now);
+        while (ids.size() < limit && (next != null || !pending.isEmpty())) {
+            if (next != null && (pending.isEmpty() || next < pending.first())) {
+                ids.add(next);
+                next = nextDueBefore(overdue, now);
+            } else {
+                Long id = pending.pollFirst();
+                if (id.equals(next)) {
+                    next = nextDueBefore(overdue, now);
+                }
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    // 调用方传入早于水位线的 now 时，跳过 now 时尚未到期的借阅
+    private Long nextDueBefore(Iterator<Long> ids, LocalDateTime now) {
+        while (ids.hasNext()) {
+            Long id = ids.next();
+            OpenLoan loan = byId.get(id);
+            if (loan != null && loan.dueDate.isBefore(now)) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    public long overdueCount() {
+        return overdueCount.get();
+    }
+
+    public int openLoanCount() {
+        return byId.size();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private boolean isPastWatermark(OpenLoan loan) {
+        LocalDateTime current = watermark;
+        return current != null && loan.dueDate.isBefore(current);
+    }
+
+    private static OpenLoan probe(LocalDateTime dueDate) {
+        return new OpenLoan(Long.MIN_VALUE, null, null, dueDate, 0);
+    }
+
+    private static class OpenLoan {
+        private final Long borrowingId;
+        private final Long userId;
+        private final Long bookId;
+        private final LocalDateTime dueDate;
+        // 本节点 add 的顺序号，重建时据此识别快照之后新增的借阅
+        private final long sequence;
+
+        OpenLoan(Long borrowingId, Long userId, Long bookId, LocalDateTime dueDate, long sequence) {
+            this.borrowingId = borrowingId;
+            this.userId = userId;
+            this.bookId = bookId;
+            this.dueDate = dueDate;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.IdempotencyRecord;
+import com.example.librarymanagement.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key 支持：同一个键的重放直接返回第一次的响应，不再执行借还书。
+ * 先在 idempotency_keys 表中插入占用行（主键冲突即重复请求），执行后写回响应；
+ * 已完成的响应同时放进有界的 Caffeine 缓存，重放通常不访问数据库，重启或跨节点时由表兜底。
+ * 5xx 和未捕获异常不保存，释放占用行以便客户端重试。
+ * 占用行的 created_at 同时是占用凭据：接管、完成和释放都以它为条件，互不覆盖。
+ */
+@Component
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final LibraryMetrics libraryMetrics;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+    private final Cache<String, StoredResponse> completed;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository repository, ObjectMapper objectMapper,
+                              LibraryMetrics libraryMetrics,
+                              @Value("${library.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${library.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${library.idempotency.in-progress-timeout-seconds:60}") long inProgressTimeoutSeconds) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.libraryMetrics = libraryMetrics;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.inProgressTimeout = Duration.ofSeconds(inProgressTimeoutSeconds);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * key 为空时直接执行。fingerprint 描述请求内容（用户、参数、请求体），同一个键配不同请求返回 422。
+     * 同键请求仍在执行时返回 409，客户端稍后用同一个键重试即可拿到结果。
+     */
+    public ResponseEntity<?> execute(String operation, String key, String fingerprint,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+        String id = operation + ":" + key;
+        String requestHash = sha256(fingerprint);
+
+        StoredResponse cached = completed.getIfPresent(id);
+        if (cached != null) {
+            return replay(cached, requestHash, "cache");
+        }
+        LocalDateTime claimedAt = claim(id, requestHash);
+        if (claimedAt == null) {
+            IdempotencyRecord record = repository.findById(id).orElse(null);
+            if (record == null) {
+                // 占用行刚被释放（上一次执行失败），按新请求处理
+                claimedAt = claim(id, requestHash);
+            } else if (record.getStatusCode() != null) {
+                StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getStatusCode(),
+                        record.getContentType(), record.getResponseBody());
+                completed.put(id, stored);
+                return replay(stored, requestHash, "table");
+            } else {
+                claimedAt = takeOverStale(record, requestHash);
+            }
+            if (claimedAt == null) {
+                return inProgress();
+            }
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            repository.release(id, claimedAt);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            repository.release(id, claimedAt);
+            return response;
+        }
+        StoredResponse stored = store(requestHash, response);
+        if (repository.complete(id, claimedAt, stored.statusCode, stored.contentType, stored.body,
+                LocalDateTime.now()) == 1) {
+            completed.put(id, stored);
+        } else {
+            logger.warn("Idempotency key " + id + " was taken over before this request completed");
+        }
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${library.idempotency.purge-interval-ms:3600000}",
+               initialDelayString = "${library.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        if (purged > 0) {
+            logger.info("Purged " + purged + " expired idempotency keys");
+        }
+    }
+
+    // 成功时返回占用时间，作为之后完成或释放的凭据；已被占用时返回 null
+    private LocalDateTime claim(String id, String requestHash) {
+        LocalDateTime claimedAt = claimTime();
+        try {
+            return repository.claim(id, requestHash, claimedAt) == 1 ? claimedAt : null;
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    // 占用后进程崩溃会留下永远“执行中”的行，超过 in-progress-timeout 后允许接管；
+    // 按读到的 created_at 比较并更新，并发接管同一行只有一个成功
+    private LocalDateTime takeOverStale(IdempotencyRecord record, String requestHash) {
+        if (record.getCreatedAt().isAfter(LocalDateTime.now().minus(inProgressTimeout))) {
+            return null;
+        }
+        LocalDateTime claimedAt = claimTime();
+        if (repository.takeOver(record.getIdempotencyKey(), requestHash, record.getCreatedAt(), claimedAt) != 1) {
+            return null;
+        }
+        logger.warn("Took over stale idempotency key " + record.getIdempotencyKey());
+        return claimedAt;
+    }
+
+    // created_at 是 DATETIME（秒精度），凭据取整到秒，写入后读回的值与之相等
+    private static LocalDateTime claimTime() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash, String outcome) {
+        if (!stored.requestHash.equals(requestHash)) {
+            libraryMetrics.idempotencyReplay("mismatch");
+            return ResponseEntity.unprocessableEntity()
+                    .body(HEADER + " was already used for a different request");
+        }
+        libraryMetrics.idempotencyReplay(outcome);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.statusCode).header(REPLAYED_HEADER, "true");
+        if (stored.contentType != null) {
+            builder.contentType(MediaType.parseMediaType(stored.contentType));
+        }
+        return builder.body(stored.body);
+    }
+
+    private ResponseEntity<?> inProgress() {
+        libraryMetrics.idempotencyReplay("in_progress");
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("A request with this " + HEADER + " is still in progress");
+    }
+
+    // 字符串响应（错误信息）原样保存为 text/plain，其余序列化为 JSON
+    private StoredResponse store(String requestHash, ResponseEntity<?> response) {
+        Object body = response.getBody();
+        String contentType;
+        String text;
+        if (body == null) {
+            contentType = null;
+            text = null;
+        } else if (body instanceof String s) {
+            contentType = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8";
+            text = s;
+        } else {
+            contentType = MediaType.APPLICATION_JSON_VALUE;
+            try {
+                text = objectMapper.writeValueAsString(body);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot store response for replay", e);
+            }
+        }
+        return new StoredResponse(requestHash, response.getStatusCode().value(), contentType, text);
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class StoredResponse {
+        private final String requestHash;
+        private final int statusCode;
+        private final String contentType;
+        private final String body;
+
+        StoredResponse(String requestHash, int statusCode, String contentType, String body) {
+            this.requestHash = requestHash;
+            this.statusCode = statusCode;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+}
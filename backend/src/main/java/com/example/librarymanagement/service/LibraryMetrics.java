@@ -0,0 +1,169 @@
+package com.example.librarymanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * 借书、还书、检索、登录的 Micrometer 计时器与计数器。
+ * 计时器发布 p50/p95/p99 及直方图桶，由 /actuator/prometheus 抓取；
+ * 缓存命中率由 Actuator 自动绑定的 cache.gets{result=hit|miss} 提供。
+ */
+@Component
+public class LibraryMetrics {
+
+    public static final String BORROW = "library.borrow";
+    public static final String RETURN = "library.return";
+    public static final String BORROW_BATCH = "library.borrow.batch";
+    public static final String RETURN_BATCH = "library.return.batch";
+    public static final String SEARCH = "library.search";
+    public static final String RELATED = "library.related";
+    public static final String LOGIN = "library.login";
+    public static final String BORROW_REJECTIONS = "library.borrow.rejections";
+    public static final String STOCK_CONFLICT_RETRIES = "library.stock.conflict.retries";
+    public static final String STOCK_CONFLICT_FAILURES = "library.stock.conflict.failures";
+    public static final String LOGIN_REJECTIONS = "library.login.rejections";
+    public static final String IDEMPOTENCY_REPLAYS = "library.idempotency.replays";
+    public static final String SINGLE_FLIGHT_CALLS = "library.singleflight.calls";
+    public static final String STATISTICS_STALE = "library.statistics.query.stale";
+    public static final String LOANS_OVERDUE = "library.loans.overdue";
+
+    private final MeterRegistry registry;
+
+    public LibraryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 计时执行 body。处于事务中时在事务完成后停表，使耗时包含提交；
+     * outcome 标签为 success / error / rollback。
+     */
+    public <T> T time(String name, Supplier<T> body) {
+        Timer.Sample sample = Timer.start(registry);
+        T result;
+        try {
+            result = body.get();
+        } catch (RuntimeException e) {
+            sample.stop(timer(name, "error"));
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    sample.stop(timer(name, status == STATUS_COMMITTED ? "success" : "rollback"));
+                }
+            });
+        } else {
+            sample.stop(timer(name, "success"));
+        }
+        return result;
+    }
+
+    /**
+     * 记录一次已完成的操作（如登录），outcome 由调用方给出
+     */
+    public void record(String name, String outcome, Timer.Sample sample) {
+        sample.stop(timer(name, outcome));
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void borrowRejected(String reason) {
+        Counter.builder(BORROW_REJECTIONS)
+                .description("Borrow requests rejected")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void loginRejected(String reason) {
+        Counter.builder(LOGIN_REJECTIONS)
+                .description("Login attempts rejected with 429")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 乐观锁冲突后重试一次；operation 如 book_update / return
+     */
+    public void stockConflictRetry(String operation) {
+        Counter.builder(STOCK_CONFLICT_RETRIES)
+                .description("Stock updates retried after a concurrent modification")
+                .tag("operation", operation)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 重试次数用尽仍然冲突，请求以 409 结束
+     */
+    public void stockConflictFailure(String operation) {
+        Counter.builder(STOCK_CONFLICT_FAILURES)
+                .description("Stock updates abandoned after exhausting optimistic retries")
+                .tag("operation", operation)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 带 Idempotency-Key 的重复请求；outcome 为 cache / table（返回已保存响应）、mismatch、in_progress
+     */
+    public void idempotencyReplay(String outcome) {
+        Counter.builder(IDEMPOTENCY_REPLAYS)
+                .description("Requests answered from a stored Idempotency-Key result")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 合并读请求：role=leader 表示实际执行了查询，role=collapsed 表示搭了正在执行的查询的便车
+     */
+    public void singleFlight(String operation, boolean collapsed) {
+        Counter.builder(SINGLE_FLIGHT_CALLS)
+                .description("Hot read calls, by whether they ran the query or shared an in-flight one")
+                .tag("operation", operation)
+                .tag("role", collapsed ? "collapsed" : "leader")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 统计查询未在截止时间内返回；reason 为 timeout / error / rejected（线程池队列已满）
+     */
+    public void statisticsQueryStale(String query, String reason) {
+        Counter.builder(STATISTICS_STALE)
+                .description("Statistics queries that missed the deadline and left the value stale")
+                .tag("query", query)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 一条借阅越过了应还日期（由应还日期索引的水位线推进触发）
+     */
+    public void loanOverdue() {
+        Counter.builder(LOANS_OVERDUE)
+                .description("Open loans that crossed their due date")
+                .register(registry)
+                .increment();
+    }
+
+    private Timer timer(String name, String outcome) {
+        return Timer.builder(name)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
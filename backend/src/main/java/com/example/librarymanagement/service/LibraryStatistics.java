@@ -0,0 +1,200 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingHistoryRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 管理员统计面板的内存计数器。
+ * 借书、还书、注册、删除时增量更新，并定期与数据库对账以修正漂移。
+ * 对账的各条计数查询在 StatisticsQueryPool 上并发执行，耗时取最慢的一条而不是总和；
+ * 未在截止时间内返回的计数保留旧值并在快照的 stale 中列出，查询完成后再回填；
+ * 被更新一轮对账超过的迟到结果直接丢弃。
+ */
+@Component
+public class LibraryStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryStatistics.class);
+
+    private static final String USERS = "totalUsers";
+    private static final String BOOKS = "totalBooks";
+    private static final String BORROWINGS = "borrowings";
+    private static final String ARCHIVED_BORROWINGS = "archivedBorrowings";
+    private static final String ACTIVE = "activeBorrowings";
+    private static final String OVERDUE = "overdueCount";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private BorrowingHistoryRepository borrowingHistoryRepository;
+
+    @Autowired
+    private StatisticsQueryPool statisticsQueryPool;
+
+    private final AtomicLong totalUsers = new AtomicLong();
+    private final AtomicLong totalBooks = new AtomicLong();
+    // 借阅总数 = 热表 + 归档表，两张表分别计数以便并发查询
+    private final AtomicLong borrowings = new AtomicLong();
+    private final AtomicLong archivedBorrowings = new AtomicLong();
+    private final AtomicLong activeBorrowings = new AtomicLong();
+    private final AtomicLong overdueCount = new AtomicLong();
+    // 每个计数最近一次写入来自哪一轮对账；低于最近一轮已结束对账的计数即为 stale
+    private final Map<String, Long> appliedGeneration = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+    private volatile long completedGeneration;
+    private volatile LocalDateTime reconciledAt;
+    // 对账期间等待查询结果，用 ReentrantLock 而非 synchronized，避免钉住虚拟线程
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    @Scheduled(fixedDelayString = "${library.statistics.reconcile-interval-ms:300000}",
+               initialDelayString = "${library.statistics.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            long generation = generations.incrementAndGet();
+            Map<String, Supplier<Long>> queries = new LinkedHashMap<>();
+            queries.put(USERS, userRepository::count);
+            queries.put(BOOKS, bookRepository::count);
+            queries.put(BORROWINGS, borrowingRepository::count);
+            queries.put(ARCHIVED_BORROWINGS, borrowingHistoryRepository::count);
+            queries.put(ACTIVE, borrowingRepository::countByReturnDateIsNull);
+            queries.put(OVERDUE, () -> borrowingRepository.countByReturnDateIsNullAndDueDateBefore(now));
+            Map<String, Long> results = statisticsQueryPool.fanOut(queries,
+                    (name, value) -> apply(name, value, generation));
+            results.forEach((name, value) -> apply(name, value, generation));
+            completedGeneration = generation;
+            reconciledAt = now;
+        } finally {
+            reconcileLock.unlock();
+        }
+        Set<String> stale = staleQueries();
+        if (!stale.isEmpty()) {
+            logger.warn("Statistics reconciled with stale values: " + stale);
+        }
+        logger.debug("Statistics reconciled: " + snapshot());
+    }
+
+    /**
+     * 立即对账后返回快照，超时的计数以旧值返回并标记为 stale
+     */
+    public Map<String, Object> refresh() {
+        reconcile();
+        return snapshot();
+    }
+
+    public Map<String, Object> snapshot() {
+        if (reconciledAt == null) {
+            reconcile();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalUsers", totalUsers.get());
+        stats.put("totalBooks", totalBooks.get());
+        stats.put("totalBorrowings", borrowings.get() + archivedBorrowings.get());
+        // 逾期数取对账值：各节点的应还日期索引只见到本节点的借还，不能作为全局计数
+        stats.put("overdueCount", overdueCount.get());
+        stats.put("activeBorrowings", activeBorrowings.get());
+        stats.put("reconciledAt", reconciledAt);
+        Set<String> staleFields = new TreeSet<>();
+        for (String name : staleQueries()) {
+            if (BORROWINGS.equals(name) || ARCHIVED_BORROWINGS.equals(name)) {
+                staleFields.add("totalBorrowings");
+            } else {
+                staleFields.add(name);
+            }
+        }
+        stats.put("stale", new ArrayList<>(staleFields));
+        return stats;
+    }
+
+    /**
+     * 写入一条计数查询的结果（对账时或超时查询稍后完成时）。
+     * 来自更早一轮对账的迟到结果不覆盖较新的值；比较和写入在同一个 compute 中完成。
+     */
+    private void apply(String name, long value, long generation) {
+        appliedGeneration.compute(name, (key, applied) -> {
+            if (applied != null && applied >= generation) {
+                return applied;
+            }
+            counter(name).set(value);
+            return generation;
+        });
+    }
+
+    private Set<String> staleQueries() {
+        long completed = completedGeneration;
+        Set<String> stale = new TreeSet<>();
+        for (String name : new String[] { USERS, BOOKS, BORROWINGS, ARCHIVED_BORROWINGS, ACTIVE, OVERDUE }) {
+            if (appliedGeneration.getOrDefault(name, 0L) < completed) {
+                stale.add(name);
+            }
+        }
+        return stale;
+    }
+
+    private AtomicLong counter(String name) {
+        return switch (name) {
+            case USERS -> totalUsers;
+            case BOOKS -> totalBooks;
+            case BORROWINGS -> borrowings;
+            case ARCHIVED_BORROWINGS -> archivedBorrowings;
+            case ACTIVE -> activeBorrowings;
+            case OVERDUE -> overdueCount;
+            default -> throw new IllegalArgumentException("Unknown statistic: " + name);
+        };
+    }
+
+    public void userRegistered() {
+        totalUsers.incrementAndGet();
+    }
+
+    public void userDeleted() {
+        decrement(totalUsers);
+    }
+
+    public void bookAdded() {
+        totalBooks.incrementAndGet();
+    }
+
+    public void bookDeleted() {
+        decrement(totalBooks);
+    }
+
+    public void bookBorrowed() {
+        borrowings.incrementAndGet();
+        activeBorrowings.incrementAndGet();
+    }
+
+    public void bookReturned() {
+        decrement(activeBorrowings);
+    }
+
+    private static void decrement(AtomicLong counter) {
+        counter.updateAndGet(value -> value > 0 ? value - 1 : 0);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.librarymanagement.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 借阅越过应还日期时由 {@link DueDateIndex} 发布的事件。
+ */
+public class LoanOverdueEvent {
+    private final Long borrowingId;
+    private final Long userId;
+    private final Long bookId;
+    private final LocalDateTime dueDate;
+
+    public LoanOverdueEvent(Long borrowingId, Long userId, Long bookId, LocalDateTime dueDate) {
+        this.borrowingId = borrowingId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.dueDate = dueDate;
+    }
+
+    public Long getBorrowingId() { return borrowingId; }
+
+    public Long getUserId() { return userId; }
+
+    public Long getBookId() { return bookId; }
+
+    public LocalDateTime getDueDate() { return dueDate; }
+}
@@ -0,0 +1,98 @@
+package com.example.librarymanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 登录令牌桶：按用户名和按客户端 IP 各一组。
+ * 桶存放在有界 Caffeine 缓存中，长时间不活跃即淘汰，撞库时大量随机用户名也不会撑爆内存。
+ */
+@Component
+public class LoginRateLimiter {
+
+    public static final String REASON_USERNAME = "username_rate";
+    public static final String REASON_IP = "ip_rate";
+
+    private static final long MAX_TRACKED_KEYS = 100_000;
+
+    private final int usernameBurst;
+    private final double usernamePerSecond;
+    private final int ipBurst;
+    private final double ipPerSecond;
+    private final Cache<String, TokenBucket> usernameBuckets;
+    private final Cache<String, TokenBucket> ipBuckets;
+
+    public LoginRateLimiter(@Value("${library.login.username-burst:5}") int usernameBurst,
+                            @Value("${library.login.username-per-minute:10}") int usernamePerMinute,
+                            @Value("${library.login.ip-burst:30}") int ipBurst,
+                            @Value("${library.login.ip-per-minute:120}") int ipPerMinute) {
+        this.usernameBurst = usernameBurst;
+        this.usernamePerSecond = usernamePerMinute / 60.0;
+        this.ipBurst = ipBurst;
+        this.ipPerSecond = ipPerMinute / 60.0;
+        this.usernameBuckets = buckets();
+        this.ipBuckets = buckets();
+    }
+
+    /**
+     * 先检查 IP 再检查用户名，任一桶耗尽即抛出 LoginThrottledException
+     */
+    public void acquire(String username, String clientIp) {
+        long now = System.nanoTime();
+        if (clientIp != null) {
+            TokenBucket bucket = ipBuckets.get(clientIp, k -> new TokenBucket(ipBurst, ipPerSecond, now));
+            if (!bucket.tryConsume(now)) {
+                throw new LoginThrottledException(REASON_IP, bucket.secondsUntilToken());
+            }
+        }
+        if (username != null) {
+            TokenBucket bucket = usernameBuckets.get(username.toLowerCase(),
+                    k -> new TokenBucket(usernameBurst, usernamePerSecond, now));
+            if (!bucket.tryConsume(now)) {
+                throw new LoginThrottledException(REASON_USERNAME, bucket.secondsUntilToken());
+            }
+        }
+    }
+
+    private static Cache<String, TokenBucket> buckets() {
+        return Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_KEYS)
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .build();
+    }
+
+    static final class TokenBucket {
+        private final int capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int capacity, double refillPerSecond, long now) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / 1_000_000_000.0;
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        synchronized boolean tryConsume(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized long secondsUntilToken() {
+            if (refillPerNano <= 0) {
+                return 60;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / refillPerNano / 1_000_000_000.0));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.librarymanagement.service;
+
+/**
+ * 登录被限流或校验线程池已满，控制器据此返回 429
+ */
+public class LoginThrottledException extends RuntimeException {
+
+    private final String reason;
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(String reason, long retryAfterSeconds) {
+        super("Too many login attempts");
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.librarymanagement.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 乐观锁冲突的有界重试：指数退避加随机抖动，最多 max-attempts 次。
+ * body 必须自带事务（每次重试重新读取），已处于外层事务中时不重试——该事务已被标记回滚。
+ */
+@Component
+public class OptimisticRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticRetry.class);
+
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
+    @Autowired
+    private StockConflictTracker stockConflictTracker;
+
+    @Value("${library.optimistic.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${library.optimistic.backoff-ms:5}")
+    private long backoffMs;
+
+    public <T> T run(String operation, Long bookId, Supplier<T> body) {
+        return run(operation, e -> bookId, body);
+    }
+
+    /**
+     * conflictBook 只在发生冲突时调用，从冲突异常解析出所涉图书（例如冲突行是借阅记录时再查出其图书）。
+     */
+    public <T> T run(String operation, Function<OptimisticLockingFailureException, Long> conflictBook,
+                     Supplier<T> body) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return body.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return body.get();
+            } catch (OptimisticLockingFailureException e) {
+                stockConflictTracker.recordConflict(conflictBook.apply(e));
+                if (attempt >= maxAttempts) {
+                    libraryMetrics.stockConflictFailure(operation);
+                    logger.warn("Giving up " + operation + " after " + attempt + " conflicting attempts");
+                    throw e;
+                }
+                libraryMetrics.stockConflictRetry(operation);
+                sleep(backoff(attempt), e);
+            }
+        }
+    }
+
+    // 第 n 次重试等待 [base*2^(n-1)/2, base*2^(n-1)]
+    long backoff(int attempt) {
+        long cap = backoffMs << Math.min(attempt - 1, 10);
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    private static void sleep(long millis, OptimisticLockingFailureException cause) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
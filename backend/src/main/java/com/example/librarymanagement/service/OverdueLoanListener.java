@@ -0,0 +1,27 @@
+package com.example.librarymanagement.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 消费 {@link DueDateIndex} 发布的逾期事件：计数并记录日志，作为催还通知的接入点。
+ * 多节点部署时每个节点都会为同一条借阅发布一次事件。
+ */
+@Component
+public class OverdueLoanListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverdueLoanListener.class);
+
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
+    @EventListener
+    public void onLoanOverdue(LoanOverdueEvent event) {
+        libraryMetrics.loanOverdue();
+        logger.info("Borrowing " + event.getBorrowingId() + " (user " + event.getUserId()
+                + ", book " + event.getBookId() + ") is overdue since " + event.getDueDate());
+    }
+}
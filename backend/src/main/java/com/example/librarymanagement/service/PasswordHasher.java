@@ -0,0 +1,84 @@
+package com.example.librarymanagement.service;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * BCrypt 哈希与成本标定。
+ * 启动时在本机测量 min-cost 的校验耗时，按“成本 +1 耗时翻倍”推算达到 target-ms 的成本；
+ * 也可以用 library.password.cost 固定成本。成本写在每个哈希里（$2a$NN$），无需额外字段，
+ * 登录成功时哈希成本与目标不一致即重新哈希。
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+    private static final int SAMPLES = 3;
+
+    private final int targetCost;
+
+    public PasswordHasher(@Value("${library.password.cost:0}") int fixedCost,
+                          @Value("${library.password.target-ms:250}") long targetMs,
+                          @Value("${library.password.min-cost:10}") int minCost,
+                          @Value("${library.password.max-cost:14}") int maxCost) {
+        if (fixedCost > 0) {
+            this.targetCost = fixedCost;
+            logger.info("BCrypt cost fixed at " + fixedCost);
+        } else {
+            this.targetCost = calibrate(targetMs, minCost, maxCost);
+        }
+    }
+
+    static int calibrate(long targetMs, int minCost, int maxCost) {
+        String hash = BCrypt.hashpw("calibration", BCrypt.gensalt(minCost));
+        BCrypt.checkpw("calibration", hash); // 预热
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.checkpw("calibration", hash);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double measuredMs = Math.max(samples[SAMPLES / 2] / 1_000_000.0, 0.001);
+        int cost = minCost + (int) Math.floor(Math.log(targetMs / measuredMs) / Math.log(2));
+        cost = Math.max(minCost, Math.min(maxCost, cost));
+        logger.info(String.format("BCrypt calibrated: cost %d took %.1f ms, target %d ms -> cost %d",
+                minCost, measuredMs, targetMs, cost));
+        return cost;
+    }
+
+    public int targetCost() {
+        return targetCost;
+    }
+
+    public String hash(String plainPassword) {
+        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(targetCost));
+    }
+
+    public boolean needsRehash(String hashedPassword) {
+        return costOf(hashedPassword) != targetCost;
+    }
+
+    /**
+     * 从 $2a$NN$... 中解析成本，格式不对返回 -1
+     */
+    public static int costOf(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$') {
+            return -1;
+        }
+        int end = hashedPassword.indexOf('$', 1);
+        if (end < 0 || hashedPassword.length() < end + 3) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(end + 1, end + 3));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.librarymanagement.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * BCrypt 校验专用线程池：固定线程数 + 有界队列。
+ * 队列满时立即拒绝（429），不在请求线程上执行，登录洪峰最多占用 threads 个 CPU 核。
+ */
+@Component
+public class PasswordVerificationPool {
+
+    public static final String REASON_QUEUE_FULL = "queue_full";
+    public static final String REASON_TIMEOUT = "timeout";
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    public PasswordVerificationPool(@Value("${library.login.verify-threads:0}") int threads,
+                                    @Value("${library.login.queue-capacity:64}") int queueCapacity,
+                                    @Value("${library.login.verify-timeout-ms:5000}") long timeoutMs,
+                                    MeterRegistry registry) {
+        // 0 表示自动：可用核数的一半，给借还请求留出 CPU
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "bcrypt-verify-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMs = timeoutMs;
+        Gauge.builder("library.login.verify.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password verifications waiting for a BCrypt thread")
+                .register(registry);
+        Gauge.builder("library.login.verify.queue.capacity", executor,
+                        e -> e.getQueue().size() + e.getQueue().remainingCapacity())
+                .register(registry);
+        Gauge.builder("library.login.verify.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("BCrypt threads currently verifying a password")
+                .register(registry);
+    }
+
+    /**
+     * 在校验线程池中执行 check 并等待结果；排不上队或等待超时抛出 LoginThrottledException
+     */
+    public boolean verify(BooleanSupplier check) {
+        Future<Boolean> future;
+        try {
+            future = executor.submit(check::getAsBoolean);
+        } catch (RejectedExecutionException e) {
+            throw new LoginThrottledException(REASON_QUEUE_FULL, 1);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new LoginThrottledException(REASON_TIMEOUT, 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new RuntimeException("Password verification interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Password verification failed", e.getCause());
+        }
+    }
+
+    /**
+     * 提交不需要等待结果的后台任务（如重新哈希）；队列已满时放弃并返回 false
+     */
+    public boolean offer(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
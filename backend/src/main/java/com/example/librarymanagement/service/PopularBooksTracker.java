@@ -0,0 +1,207 @@
+package com.example.librarymanagement.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 热门图书的流式 Top-K 统计（Space-Saving 算法）。
+ * 全部时间使用一个摘要；近 30 天 / 7 天窗口按天分桶，查询时合并。
+ * 每个摘要最多保留 capacity 个计数器。全部时间的估计值只会偏高，偏高不超过 maxError（≤ 总借阅数 / capacity）；
+ * 窗口查询合并多个日摘要，某天未被跟踪的次数会漏计，因此窗口估计值可能偏高也可能偏低，误差绝对值不超过 maxError。
+ */
+@Component
+public class PopularBooksTracker {
+
+    public static final int MAX_WINDOW_DAYS = 30;
+
+    private final int capacity;
+    private final SpaceSaving allTime;
+    private final Map<Long, SpaceSaving> daily = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+
+    public PopularBooksTracker(@Value("${library.popular-books.capacity:1000}") int capacity) {
+        this.capacity = capacity;
+        this.allTime = new SpaceSaving(capacity);
+    }
+
+    /**
+     * allTimeCounts 为 [bookId, count] 聚合结果，recentBorrows 为近 30 天的 [bookId, borrowDate]。
+     * 输入是精确计数：每个摘要只装入次数最多的 capacity 本，误差为 0；
+     * 被舍弃的图书次数不超过摘要中的最小计数，Space-Saving 的误差界对之后的增量更新继续成立。
+     */
+    public synchronized void rebuild(List<Object[]> allTimeCounts, List<Object[]> recentBorrows) {
+        allTime.clear();
+        daily.clear();
+        Map<Long, Long> exact = new HashMap<>();
+        for (Object[] row : allTimeCounts) {
+            exact.merge((Long) row[0], ((Number) row[1]).longValue(), Long::sum);
+        }
+        seed(allTime, exact);
+        Map<Long, Map<Long, Long>> byDay = new HashMap<>();
+        for (Object[] row : recentBorrows) {
+            LocalDateTime borrowDate = (LocalDateTime) row[1];
+            byDay.computeIfAbsent(borrowDate.toLocalDate().toEpochDay(), d -> new HashMap<>())
+                    .merge((Long) row[0], 1L, Long::sum);
+        }
+        byDay.forEach((day, counts) -> seed(bucket(LocalDate.ofEpochDay(day)), counts));
+        ready = true;
+    }
+
+    private void seed(SpaceSaving summary, Map<Long, Long> counts) {
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<Long, Long>comparingByValue().reversed());
+        for (int i = 0; i < entries.size() && i < capacity; i++) {
+            summary.offer(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+
+    public void recordBorrow(Long bookId, LocalDateTime borrowDate) {
+        allTime.offer(bookId, 1);
+        bucket(borrowDate.toLocalDate()).offer(bookId, 1);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * windowDays 为 0 表示全部时间。返回按估计次数降序的 Top-K。
+     * 窗口的 maxError 是各日摘要最小计数之和，同时约束偏高（被跟踪时继承的误差）和偏低（某天未被跟踪而漏计）。
+     */
+    public List<Estimate> top(int k, int windowDays, LocalDate today) {
+        if (windowDays <= 0) {
+            return allTime.top(k);
+        }
+        pruneBefore(today.minusDays(MAX_WINDOW_DAYS - 1));
+        Map<Long, Long> merged = new HashMap<>();
+        long errorBound = 0;
+        for (int i = 0; i < windowDays; i++) {
+            SpaceSaving summary = daily.get(today.minusDays(i).toEpochDay());
+            if (summary != null) {
+                summary.addCountsTo(merged);
+                errorBound += summary.floor();
+            }
+        }
+        List<Estimate> estimates = new ArrayList<>(merged.size());
+        for (Map.Entry<Long, Long> e : merged.entrySet()) {
+            estimates.add(new Estimate(e.getKey(), e.getValue(), errorBound));
+        }
+        estimates.sort(Estimate.BY_COUNT_DESC);
+        return estimates.size() > k ? new ArrayList<>(estimates.subList(0, k)) : estimates;
+    }
+
+    private SpaceSaving bucket(LocalDate day) {
+        return daily.computeIfAbsent(day.toEpochDay(), d -> new SpaceSaving(capacity));
+    }
+
+    private void pruneBefore(LocalDate oldest) {
+        long cutoff = oldest.toEpochDay();
+        daily.keySet().removeIf(day -> day < cutoff);
+    }
+
+    public static class Estimate {
+        static final Comparator<Estimate> BY_COUNT_DESC =
+                Comparator.comparingLong((Estimate e) -> -e.count).thenComparingLong(e -> e.bookId);
+
+        private final Long bookId;
+        private final long count;
+        private final long maxError;
+
+        Estimate(Long bookId, long count, long maxError) {
+            this.bookId = bookId;
+            this.count = count;
+            this.maxError = maxError;
+        }
+
+        public Long getBookId() { return bookId; }
+
+        public long getCount() { return count; }
+
+        public long getMaxError() { return maxError; }
+    }
+
+    /**
+     * Space-Saving 摘要：计数器满时替换最小计数器，新条目继承其计数作为误差。
+     */
+    static class SpaceSaving {
+        private final int capacity;
+        private final Map<Long, Counter> counters = new HashMap<>();
+        private final TreeSet<Counter> byCount = new TreeSet<>(
+                Comparator.comparingLong((Counter c) -> c.count).thenComparingLong(c -> c.bookId));
+
+        SpaceSaving(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void offer(Long bookId, long n) {
+            Counter counter = counters.get(bookId);
+            if (counter != null) {
+                byCount.remove(counter);
+                counter.count += n;
+                byCount.add(counter);
+                return;
+            }
+            if (counters.size() < capacity) {
+                counter = new Counter(bookId, n, 0);
+            } else {
+                Counter min = byCount.pollFirst();
+                counters.remove(min.bookId);
+                counter = new Counter(bookId, min.count + n, min.count);
+            }
+            counters.put(bookId, counter);
+            byCount.add(counter);
+        }
+
+        synchronized List<Estimate> top(int k) {
+            List<Estimate> result = new ArrayList<>(k);
+            for (Counter c : byCount.descendingSet()) {
+                if (result.size() >= k) {
+                    break;
+                }
+                result.add(new Estimate(c.bookId, c.count, c.error));
+            }
+            result.sort(Estimate.BY_COUNT_DESC);
+            return result;
+        }
+
+        synchronized void addCountsTo(Map<Long, Long> merged) {
+            for (Counter c : counters.values()) {
+                merged.merge(c.bookId, c.count, Long::sum);
+            }
+        }
+
+        /**
+         * 未被跟踪条目的真实次数上限；摘要未满时为 0（计数精确）。
+         */
+        synchronized long floor() {
+            return counters.size() < capacity || byCount.isEmpty() ? 0 : byCount.first().count;
+        }
+
+        synchronized void clear() {
+            counters.clear();
+            byCount.clear();
+        }
+    }
+
+    private static class Counter {
+        private final Long bookId;
+        private long count;
+        private final long error;
+
+        Counter(Long bookId, long count, long error) {
+            this.bookId = bookId;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
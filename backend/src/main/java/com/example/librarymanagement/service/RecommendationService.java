@@ -0,0 +1,224 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.config.ReplicaReads;
+import com.example.librarymanagement.entity.Book;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 相关图书推荐。启动时从 borrowings + borrowings_history 构建共现矩阵：
+ * 按 user_id 区间用 fork/join 拆分，每个叶子分区各自查询并建立局部矩阵，再两两合并；
+ * 之后每次借书由 BorrowingService 增量更新 CoBorrowingIndex，查询只读内存。
+ * 构建查询经 ReplicaReads 执行，配置了副本时走副本；副本延迟内提交的少量借阅可能漏计，下次重建补上。
+ */
+@Service
+public class RecommendationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationService.class);
+
+    // 同一读者的借阅按时间倒序排列，构建时只取最近 maxBooksPerUser 本不同的书
+    private static final String PARTITION_SQL =
+            "SELECT b.user_id, b.book_id FROM ("
+            + "SELECT user_id, book_id, borrow_date FROM borrowings "
+            + "WHERE user_id >= ? AND user_id < ? AND borrowing_id <= ? "
+            + "UNION ALL SELECT user_id, book_id, borrow_date FROM borrowings_history "
+            + "WHERE user_id >= ? AND user_id < ?) b "
+            + "ORDER BY b.user_id, b.borrow_date DESC";
+
+    private static final int MAX_LIMIT = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReplicaReads replicaReads;
+
+    @Autowired
+    private CoBorrowingIndex coBorrowingIndex;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
+    @Value("${library.recommendations.parallelism:4}")
+    private int parallelism;
+
+    @Value("${library.recommendations.partition-users:5000}")
+    private long partitionUsers;
+
+    @Value("${library.recommendations.max-books-per-user:100}")
+    private int maxBooksPerUser;
+
+    @Value("${library.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * 重建共现矩阵，返回参与构建的读者数。重建期间仍用旧矩阵回答查询。
+     */
+    public int rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            coBorrowingIndex.beginRebuild();
+            try {
+                // 快照上界：之后插入的借阅由排队的增量事件补上，不会重复计数
+                long[] bounds = replicaReads.execute(() -> new long[] {
+                        queryLong("SELECT COALESCE(MAX(borrowing_id), 0) FROM borrowings"),
+                        Math.min(queryLong("SELECT COALESCE(MIN(user_id), 0) FROM borrowings"),
+                                queryLong("SELECT COALESCE(MIN(user_id), 0) FROM borrowings_history")),
+                        Math.max(queryLong("SELECT COALESCE(MAX(user_id), 0) FROM borrowings"),
+                                queryLong("SELECT COALESCE(MAX(user_id), 0) FROM borrowings_history")) });
+                long maxBorrowingId = bounds[0];
+                long minUser = bounds[1];
+                long maxUser = bounds[2];
+                CoBorrowingIndex.Matrix matrix;
+                if (maxUser <= 0) {
+                    matrix = new CoBorrowingIndex.Matrix(maxBooksPerUser);
+                } else {
+                    // 只有一张表有数据时另一张表的 MIN 为 0
+                    long from = minUser > 0 ? minUser : 1;
+                    try (ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism))) {
+                        matrix = pool.invoke(new PartitionTask(from, maxUser + 1, maxBorrowingId));
+                    }
+                }
+                coBorrowingIndex.install(matrix, maxBorrowingId);
+                int users = matrix.userCount();
+                logger.info(String.format("Co-borrowing index built: %d readers, %d titles in %d ms",
+                        users, matrix.bookCount(), (System.nanoTime() - start) / 1_000_000));
+                return users;
+            } catch (RuntimeException e) {
+                coBorrowingIndex.abortRebuild();
+                throw e;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * “借过这本书的读者还借了”，书名和作者取自图书缓存；已删除的图书跳过
+     */
+    public List<Map<String, Object>> getRelatedBooks(Long bookId, int limit) {
+        return libraryMetrics.time(LibraryMetrics.RELATED, () -> {
+            List<Map<String, Object>> related = new ArrayList<>();
+            int capped = Math.max(1, Math.min(limit, MAX_LIMIT));
+            for (CoBorrowingIndex.Related candidate : coBorrowingIndex.related(bookId, capped)) {
+                Book book = bookService.findById(candidate.getBookId());
+                if (book == null) {
+                    continue;
+                }
+                Map<String, Object> item = new HashMap<>();
+                item.put("bookId", candidate.getBookId());
+                item.put("title", book.getTitle());
+                item.put("author", book.getAuthor());
+                item.put("coBorrowers", candidate.getCoBorrowers());
+                item.put("score", candidate.getScore());
+                related.add(item);
+            }
+            return related;
+        });
+    }
+
+    public boolean isReady() {
+        return coBorrowingIndex.isReady();
+    }
+
+    private long queryLong(String sql) {
+        Number value = jdbcTemplate.queryForObject(sql, Number.class);
+        return value != null ? value.longValue() : 0;
+    }
+
+    CoBorrowingIndex.Matrix loadPartition(long fromUser, long toUser, long maxBorrowingId) {
+        return replicaReads.execute(() -> queryPartition(fromUser, toUser, maxBorrowingId));
+    }
+
+    private CoBorrowingIndex.Matrix queryPartition(long fromUser, long toUser, long maxBorrowingId) {
+        CoBorrowingIndex.Matrix matrix = new CoBorrowingIndex.Matrix(maxBooksPerUser);
+        long[] books = new long[maxBooksPerUser];
+        int[] count = { 0 };
+        long[] currentUser = { 0 };
+        // 共享的 JdbcTemplate 不设抓取大小，逐行流式读取只在这条查询上设置
+        jdbcTemplate.query(PARTITION_SQL, ps -> {
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, fromUser);
+            ps.setLong(2, toUser);
+            ps.setLong(3, maxBorrowingId);
+            ps.setLong(4, fromUser);
+            ps.setLong(5, toUser);
+        }, (RowCallbackHandler) rs -> {
+            long userId = rs.getLong(1);
+            long bookId = rs.getLong(2);
+            if (userId != currentUser[0]) {
+                matrix.addUser(currentUser[0], Arrays.copyOf(books, count[0]));
+                currentUser[0] = userId;
+                count[0] = 0;
+            }
+            if (count[0] < books.length && !contains(books, count[0], bookId)) {
+                books[count[0]++] = bookId;
+            }
+        });
+        matrix.addUser(currentUser[0], Arrays.copyOf(books, count[0]));
+        return matrix;
+    }
+
+    private static boolean contains(long[] books, int count, long bookId) {
+        for (int i = 0; i < count; i++) {
+            if (books[i] == bookId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按 user_id 区间二分，区间不超过 partitionUsers 时查询并构建；同一读者只落在一个分区
+     */
+    private class PartitionTask extends RecursiveTask<CoBorrowingIndex.Matrix> {
+        private final long fromUser;
+        private final long toUser;
+        private final long maxBorrowingId;
+
+        PartitionTask(long fromUser, long toUser, long maxBorrowingId) {
+            this.fromUser = fromUser;
+            this.toUser = toUser;
+            this.maxBorrowingId = maxBorrowingId;
+        }
+
+        @Override
+        protected CoBorrowingIndex.Matrix compute() {
+            if (toUser - fromUser <= partitionUsers) {
+                return loadPartition(fromUser, toUser, maxBorrowingId);
+            }
+            long mid = fromUser + (toUser - fromUser) / 2;
+            PartitionTask left = new PartitionTask(fromUser, mid, maxBorrowingId);
+            left.fork();
+            CoBorrowingIndex.Matrix right = new PartitionTask(mid, toUser, maxBorrowingId).compute();
+            CoBorrowingIndex.Matrix leftMatrix = left.join();
+            // 小的并入大的
+            if (leftMatrix.bookCount() < right.bookCount()) {
+                right.merge(leftMatrix);
+                return right;
+            }
+            leftMatrix.merge(right);
+            return leftMatrix;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.User;
+
+/**
+ * 会话令牌中携带的身份信息，由 SessionTokenFilter 校验后放入请求属性
+ */
+public class SessionPrincipal {
+
+    private final Long userId;
+    private final User.Role role;
+
+    public SessionPrincipal(Long userId, User.Role role) {
+        this.userId = userId;
+        this.role = role;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public User.Role getRole() {
+        return role;
+    }
+
+    public boolean isAdmin() {
+        return role == User.Role.ADMIN;
+    }
+
+    /**
+     * 本人或管理员可以访问 userId 的数据
+     */
+    public boolean canAccess(Long userId) {
+        return isAdmin() || this.userId.equals(userId);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.librarymanagement.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 相同热点读请求合并：同一 operation + key 同时只执行一次，执行期间到达的调用等待并共享同一结果（或异常）。
+ * 只合并正在执行的调用，完成后立即移除，不做缓存；结果对象由所有调用方共享，调用方不得修改。
+ */
+@Component
+public class SingleFlight {
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LibraryMetrics libraryMetrics;
+    private final boolean enabled;
+
+    public SingleFlight(LibraryMetrics libraryMetrics,
+                        @Value("${library.single-flight.enabled:true}") boolean enabled) {
+        this.libraryMetrics = libraryMetrics;
+        this.enabled = enabled;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key flightKey = new Key(operation, key);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(flightKey, mine);
+        if (leader != null) {
+            libraryMetrics.singleFlight(operation, true);
+            return (T) await(leader);
+        }
+        libraryMetrics.singleFlight(operation, false);
+        try {
+            T result = loader.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    // 等待期间不持有锁，虚拟线程在 get() 上挂起不会钉住载体线程
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight query", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static final class Key {
+        private final String operation;
+        private final Object key;
+
+        Key(String operation, Object key) {
+            this.operation = operation;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return operation.equals(other.operation) && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * operation.hashCode() + Objects.hashCode(key);
+        }
+    }
+}
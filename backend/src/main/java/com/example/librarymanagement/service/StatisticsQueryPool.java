@@ -0,0 +1,92 @@
+package com.example.librarymanagement.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 统计报表查询专用线程池：固定线程数 + 有界队列，相互独立的计数查询并发执行。
+ * 整批共用一个截止时间，超时的查询不取消，在后台完成后通过 onLate 回填；排不上队的查询直接视为过期。
+ */
+@Component
+public class StatisticsQueryPool {
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final LibraryMetrics libraryMetrics;
+
+    public StatisticsQueryPool(@Value("${library.statistics.query-threads:4}") int threads,
+                               @Value("${library.statistics.query-queue-capacity:16}") int queueCapacity,
+                               @Value("${library.statistics.query-timeout-ms:2000}") long timeoutMs,
+                               LibraryMetrics libraryMetrics,
+                               MeterRegistry registry) {
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "statistics-query-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMs = timeoutMs;
+        this.libraryMetrics = libraryMetrics;
+        Gauge.builder("library.statistics.query.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Statistics queries currently running")
+                .register(registry);
+    }
+
+    /**
+     * 并发执行 queries，最多等待 query-timeout-ms。返回在截止时间内成功的结果（按提交顺序）；
+     * 超时、失败或被拒绝的查询不在结果中。超时的查询稍后完成时调用 onLate(名称, 结果)。
+     */
+    public Map<String, Long> fanOut(Map<String, Supplier<Long>> queries, BiConsumer<String, Long> onLate) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Map<String, CompletableFuture<Long>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<Long>> query : queries.entrySet()) {
+            try {
+                futures.put(query.getKey(), CompletableFuture.supplyAsync(query.getValue(), executor));
+            } catch (RejectedExecutionException e) {
+                libraryMetrics.statisticsQueryStale(query.getKey(), "rejected");
+            }
+        }
+        Map<String, Long> results = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<Long>> entry : futures.entrySet()) {
+            String name = entry.getKey();
+            CompletableFuture<Long> future = entry.getValue();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                results.put(name, future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                libraryMetrics.statisticsQueryStale(name, "timeout");
+                future.thenAccept(value -> onLate.accept(name, value));
+            } catch (ExecutionException e) {
+                libraryMetrics.statisticsQueryStale(name, "error");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
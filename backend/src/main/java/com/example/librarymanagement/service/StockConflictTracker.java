@@ -0,0 +1,30 @@
+package com.example.librarymanagement.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 按图书统计乐观锁冲突次数（Space-Saving，内存固定），用来找出并发修改最集中的热门图书。
+ * 冲突总数按操作类型在 library.stock.conflict.* 指标中发布，避免按图书ID打标签造成指标基数爆炸。
+ */
+@Component
+public class StockConflictTracker {
+
+    private final PopularBooksTracker.SpaceSaving conflicts;
+
+    public StockConflictTracker(@Value("${library.stock-conflicts.capacity:200}") int capacity) {
+        this.conflicts = new PopularBooksTracker.SpaceSaving(capacity);
+    }
+
+    public void recordConflict(Long bookId) {
+        if (bookId != null) {
+            conflicts.offer(bookId, 1);
+        }
+    }
+
+    public List<PopularBooksTracker.Estimate> top(int k) {
+        return conflicts.top(k);
+    }
+}
@@ -1,9 +1,17 @@
 package com.example.librarymanagement.service;
 
+import com.example.librarymanagement.config.CacheConfig;
 import com.example.librarymanagement.entity.User;
 import com.example.librarymanagement.repository.UserRepository;
 import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -12,9 +20,17 @@ import java.time.LocalDateTime;
 @Service
 public class UserService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private LibraryStatistics libraryStatistics;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
     public User register(User user) {
         // 检查用户名是否已存在
         User existingUser = userRepository.findByUsername(user.getUsername());
@@ -37,31 +53,48 @@ public class UserService {
         }
         
         // 加密密码
-        user.setPassword(BCrypt.hashpw(user.getPassword(), BCrypt.gensalt()));
-        return userRepository.save(user);
+        user.setPassword(passwordHasher.hash(user.getPassword()));
+        User saved = userRepository.save(user);
+        libraryStatistics.userRegistered();
+        return saved;
     }
 
+    @Cacheable(value = CacheConfig.USERS_BY_USERNAME, key = "#username", unless = "#result == null")
     public User findByUsername(String username) {
         return userRepository.findByUsername(username);
     }
 
+    // 格式不正确的哈希按校验失败处理；登录结果由登录计时器的 outcome 标签记录
     public boolean checkPassword(String plainPassword, String hashedPassword) {
-        // 调试：输出密码信息
-        System.out.println("=== Password Debug ===");
-        System.out.println("Plain password: " + plainPassword);
-        System.out.println("Hashed password: " + hashedPassword);
-        
         try {
-            boolean result = BCrypt.checkpw(plainPassword, hashedPassword);
-            System.out.println("BCrypt check result: " + result);
-            return result;
-        } catch (Exception e) {
-            System.out.println("BCrypt check exception: " + e.getMessage());
-            e.printStackTrace();
+            return BCrypt.checkpw(plainPassword, hashedPassword);
+        } catch (RuntimeException e) {
             return false;
         }
     }
 
+    /**
+     * 登录成功后调用：哈希成本与当前目标不一致时用目标成本重新哈希并保存
+     */
+    @Caching(
+        put = @CachePut(value = CacheConfig.USERS, key = "#result.userId",
+                        condition = "#result != null && #result.userId != null"),
+        evict = @CacheEvict(value = CacheConfig.USERS_BY_USERNAME, key = "#user.username",
+                            condition = "#user.username != null")
+    )
+    public User rehashIfNeeded(User user, String plainPassword) {
+        if (!passwordHasher.needsRehash(user.getPassword())) {
+            return user;
+        }
+        int oldCost = PasswordHasher.costOf(user.getPassword());
+        user.setPassword(passwordHasher.hash(plainPassword));
+        user.setUpdatedAt(LocalDateTime.now());
+        User saved = userRepository.save(user);
+        logger.info("Rehashed password for " + user.getUsername() + " from cost " + oldCost
+                + " to " + passwordHasher.targetCost());
+        return saved;
+    }
+
     // 测试方法：生成正确的 BCrypt 密码哈希（用于验证）
     public static String generatePasswordHash(String plainPassword) {
         return BCrypt.hashpw(plainPassword, BCrypt.gensalt());
@@ -71,17 +104,36 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    public List<User> findPage(long afterUserId, int limit) {
+        return userRepository.findByUserIdGreaterThanOrderByUserIdAsc(afterUserId, PageRequest.of(0, limit));
+    }
+
+    @Cacheable(value = CacheConfig.USERS, key = "#userId", unless = "#result == null")
     public User findById(Long userId) {
         return userRepository.findById(userId).orElse(null);
     }
 
+    @Caching(
+        put = @CachePut(value = CacheConfig.USERS, key = "#result.userId",
+                        condition = "#result != null && #result.userId != null"),
+        evict = @CacheEvict(value = CacheConfig.USERS_BY_USERNAME, key = "#user.username",
+                            condition = "#user.username != null")
+    )
     public User save(User user) {
         user.setUpdatedAt(LocalDateTime.now());
         return userRepository.save(user);
     }
 
+    // 删除时不知道用户名，清空用户名索引缓存（删除操作很少）
+    @Caching(evict = {
+        @CacheEvict(value = CacheConfig.USERS, key = "#userId"),
+        @CacheEvict(value = CacheConfig.USERS_BY_USERNAME, allEntries = true)
+    })
     public void delete(Long userId) {
-        userRepository.deleteById(userId);
+        // 只有确实删除了一行才减计数，删除不存在的ID不影响统计
+        if (userRepository.deleteUserById(userId) == 1) {
+            libraryStatistics.userDeleted();
+        }
     }
 
     public long getTotalUsers() {
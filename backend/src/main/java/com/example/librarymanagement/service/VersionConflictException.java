@@ -0,0 +1,11 @@
+package com.example.librarymanagement.service;
+
+/**
+ * 客户端提交的版本号已过期（记录在读取之后被他人修改），需要重新读取后再提交。
+ */
+public class VersionConflictException extends RuntimeException {
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,4 @@
--- Drop tables if they exist (to reset on fresh start)
-DROP TABLE IF EXISTS borrowings;
-DROP TABLE IF EXISTS users;
-DROP TABLE IF EXISTS books;
+-- Baseline schema. IF NOT EXISTS lets databases created by the old schema.sql adopt it unchanged.
 
 -- Create users table
 CREATE TABLE IF NOT EXISTS users (
@@ -41,3 +38,20 @@ CREATE TABLE IF NOT EXISTS borrowings (
     INDEX idx_user (user_id),
     INDEX idx_book (book_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Archived (returned) borrowings, moved out of the hot table by BorrowingArchiver
+CREATE TABLE IF NOT EXISTS borrowings_history (
+    borrowing_id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    borrow_date DATETIME NOT NULL,
+    due_date DATETIME NOT NULL,
+    return_date DATETIME NULL,
+    fine DECIMAL(10,2) DEFAULT 0,
+    created_at DATETIME,
+    updated_at DATETIME,
+    archived_at DATETIME,
+    INDEX idx_history_user (user_id, borrow_date),
+    INDEX idx_history_book (book_id),
+    INDEX idx_history_borrow_date (borrow_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -1,10 +1,8 @@
--- Clear existing data and insert fresh sample books
-DELETE FROM books;
-DELETE FROM users;
+-- Sample books, inserted once; IGNORE skips ISBNs already present
 
 -- 用户将由 DataInitializer 在应用启动时创建
 
-INSERT INTO books (title, author, isbn, category, stock, location) VALUES
+INSERT IGNORE INTO books (title, author, isbn, category, stock, location) VALUES
 ('Java核心技术', 'Cay S. Horstmann', '978-7-111-55662-9', 'Programming', 5, 'A1-01'),
 ('设计模式', 'Gang of Four', '978-0-201-63361-0', 'Programming', 3, 'A1-02'),
 ('计算机网络', 'Andrew S. Tanenbaum', '978-0-13-359440-9', 'Networking', 4, 'B2-01'),
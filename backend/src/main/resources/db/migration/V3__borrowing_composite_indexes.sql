@@ -0,0 +1,5 @@
+-- Open-loan and overdue scans: WHERE return_date IS NULL [AND due_date < ?]
+CREATE INDEX idx_borrowings_return_due ON borrowings (return_date, due_date);
+
+-- Per-user history ordered by borrow date
+CREATE INDEX idx_borrowings_user_borrow ON borrowings (user_id, borrow_date);
@@ -0,0 +1,4 @@
+-- Optimistic locking (@Version) for books and borrowings; history keeps the version it was archived with
+ALTER TABLE books ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE borrowings ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE borrowings_history ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
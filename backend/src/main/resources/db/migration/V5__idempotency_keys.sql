@@ -0,0 +1,12 @@
+-- Idempotency-Key results for borrow/return. A row is claimed (status_code NULL) before the request runs
+-- and completed with the response afterwards; rows older than library.idempotency.ttl-hours are purged.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(200) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    status_code INT NULL,
+    content_type VARCHAR(100) NULL,
+    response_body MEDIUMTEXT NULL,
+    created_at DATETIME NOT NULL,
+    completed_at DATETIME NULL,
+    INDEX idx_idempotency_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,195 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.dto.BatchResult;
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("批量借书/还书测试")
+public class BatchBorrowingTest {
+
+    private static final Long USER_ID = 42L;
+
+    @Autowired
+    private BorrowingService borrowingService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LibraryStatistics libraryStatistics;
+
+    @Autowired
+    private DueDateIndex dueDateIndex;
+
+    private Book inStock;
+    private Book lastCopy;
+    private Book soldOut;
+
+    @BeforeEach
+    public void setUp() {
+        borrowingRepository.deleteAll();
+        bookRepository.deleteAll();
+        inStock = createBook("978-0-00-000101-1", 3);
+        lastCopy = createBook("978-0-00-000102-2", 1);
+        soldOut = createBook("978-0-00-000103-3", 0);
+    }
+
+    @Test
+    @DisplayName("购物车借书逐本返回结果，缺货和不存在的图书不影响其余图书")
+    public void testBorrowBooksReportsPerItemOutcome() {
+        // Arrange
+        List<Long> cart = Arrays.asList(inStock.getBookId(), soldOut.getBookId(), lastCopy.getBookId(),
+                999_999L, inStock.getBookId());
+
+        // Act
+        BatchResult result = borrowingService.borrowBooks(USER_ID, cart);
+
+        // Assert
+        assertEquals(2, result.getSucceeded());
+        assertEquals(3, result.getRejected());
+        List<BatchResult.Item> items = result.getItems();
+        assertTrue(items.get(0).isSuccess());
+        assertNotNull(items.get(0).getBorrowing().getBorrowingId());
+        assertEquals("Book not available", items.get(1).getReason());
+        assertTrue(items.get(2).isSuccess());
+        assertEquals("Book not found", items.get(3).getReason());
+        assertEquals("Duplicate book in request", items.get(4).getReason());
+
+        assertEquals(2, bookRepository.findById(inStock.getBookId()).orElseThrow().getStock());
+        assertEquals(0, bookRepository.findById(lastCopy.getBookId()).orElseThrow().getStock());
+        assertEquals(0, bookRepository.findById(soldOut.getBookId()).orElseThrow().getStock());
+        Borrowing saved = borrowingRepository.findById(items.get(2).getBorrowing().getBorrowingId()).orElseThrow();
+        assertEquals(USER_ID, saved.getUserId());
+        assertEquals(lastCopy.getBookId(), saved.getBookId());
+        assertEquals(0L, saved.getVersion());
+    }
+
+    @Test
+    @DisplayName("批量借书后缓存中的库存失效")
+    public void testBorrowBooksEvictsCachedStock() {
+        // Arrange
+        assertEquals(3, bookService.findById(inStock.getBookId()).getStock());
+
+        // Act
+        borrowingService.borrowBooks(USER_ID, List.of(inStock.getBookId()));
+
+        // Assert
+        assertEquals(2, bookService.findById(inStock.getBookId()).getStock());
+    }
+
+    @Test
+    @DisplayName("批量还书归还库存，拒绝他人的和已归还的借阅")
+    public void testReturnBooks() {
+        // Arrange
+        BatchResult borrowed = borrowingService.borrowBooks(USER_ID,
+                List.of(inStock.getBookId(), lastCopy.getBookId()));
+        Long first = borrowed.getItems().get(0).getBorrowing().getBorrowingId();
+        Long second = borrowed.getItems().get(1).getBorrowing().getBorrowingId();
+        Long othersLoan = borrowingService.borrowBook(7L, inStock.getBookId()).getBorrowingId();
+        borrowingService.returnBook(second);
+
+        // Act
+        BatchResult result = borrowingService.returnBooks(List.of(first, second, othersLoan), USER_ID);
+
+        // Assert
+        assertEquals(1, result.getSucceeded());
+        assertTrue(result.getItems().get(0).isSuccess());
+        assertEquals("Invalid borrowing record", result.getItems().get(1).getReason());
+        assertEquals("Invalid borrowing record", result.getItems().get(2).getReason());
+        assertNotNull(borrowingRepository.findById(first).orElseThrow().getReturnDate());
+        assertNull(borrowingRepository.findById(othersLoan).orElseThrow().getReturnDate());
+        assertEquals(2, bookRepository.findById(inStock.getBookId()).orElseThrow().getStock());
+        assertEquals(1, bookRepository.findById(lastCopy.getBookId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("同一本书的多条借阅一次归还，库存按条数增加")
+    public void testReturnBooksSameTitle() {
+        // Arrange
+        List<Long> loans = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            loans.add(borrowingService.borrowBook(USER_ID, inStock.getBookId()).getBorrowingId());
+        }
+        assertEquals(0, bookRepository.findById(inStock.getBookId()).orElseThrow().getStock());
+
+        // Act
+        BatchResult result = borrowingService.returnBooks(loans, null);
+
+        // Assert
+        assertEquals(3, result.getSucceeded());
+        assertEquals(3, bookRepository.findById(inStock.getBookId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("事务回滚的借书和还书不改变内存索引和计数")
+    public void testRolledBackBorrowLeavesNoTrace() {
+        // Arrange
+        Long loan = borrowingService.borrowBook(USER_ID, inStock.getBookId()).getBorrowingId();
+        Map<String, Object> before = libraryStatistics.snapshot();
+        int openLoans = dueDateIndex.openLoanCount();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            borrowingService.borrowBook(USER_ID, inStock.getBookId());
+            borrowingService.borrowBooks(USER_ID, List.of(lastCopy.getBookId()));
+            borrowingService.returnBook(loan);
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        Map<String, Object> after = libraryStatistics.snapshot();
+        assertEquals(before.get("totalBorrowings"), after.get("totalBorrowings"));
+        assertEquals(before.get("activeBorrowings"), after.get("activeBorrowings"));
+        assertEquals(openLoans, dueDateIndex.openLoanCount());
+        assertNull(borrowingRepository.findById(loan).orElseThrow().getReturnDate());
+    }
+
+    @Test
+    @DisplayName("空批次和超过上限的批次被拒绝")
+    public void testBatchSizeLimits() {
+        assertThrows(IllegalArgumentException.class,
+                () -> borrowingService.borrowBooks(USER_ID, Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class,
+                () -> borrowingService.borrowBooks(USER_ID, List.of(1L, 2L, 3L, 4L, 5L, 6L)));
+        assertThrows(IllegalArgumentException.class,
+                () -> borrowingService.returnBooks(List.of(1L, 2L, 3L, 4L, 5L, 6L), USER_ID));
+    }
+
+    private Book createBook(String isbn, int stock) {
+        Book book = new Book();
+        book.setTitle("Batch " + isbn);
+        book.setAuthor("Kiosk");
+        book.setIsbn(isbn);
+        book.setCategory("Test");
+        book.setStock(stock);
+        return bookRepository.save(book);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.dto.ImportResult;
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("馆藏批量导入测试")
+public class BookImportServiceTest {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BorrowingService borrowingService;
+
+    @BeforeEach
+    public void setUp() {
+        borrowingRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("ISBN-10 / ISBN-13 校验位")
+    public void testIsbnValidation() {
+        assertTrue(BookImportService.isValidIsbn("978-7-111-55662-6"));
+        assertTrue(BookImportService.isValidIsbn("9780201633610"));
+        assertTrue(BookImportService.isValidIsbn("0-306-40615-2"));
+        assertTrue(BookImportService.isValidIsbn("0-8044-2957-X"));
+        assertFalse(BookImportService.isValidIsbn("978-7-111-55662-9"));
+        assertFalse(BookImportService.isValidIsbn("12345"));
+        assertFalse(BookImportService.isValidIsbn("978-7-111-5566A-9"));
+    }
+
+    @Test
+    @DisplayName("CSV 导入：校验失败的行被拒绝，重复 ISBN 更新已有记录的书目信息")
+    public void testImportCsv() {
+        // Arrange
+        String csv = "title,author,isbn,category,stock,location\n"
+                + "Java核心技术,Cay S. Horstmann,978-7-111-55662-6,Programming,5,A1-01\n"
+                + "\"设计模式, 第2版\",Gang of Four,978-0-201-63361-0,Programming,3,A1-02\n"
+                + "坏ISBN,Nobody,978-0-000-00000-1,X,1,Z\n"
+                + ",No Title,978-0-13-359440-9,X,1,Z\n"
+                + "Java核心技术（第12版）,Cay S. Horstmann,978-7-111-55662-6,Programming,8,A1-03\n";
+
+        // Act
+        ImportResult result = bookImportService.importBooks(stream(csv), BookImportService.Format.CSV, 0);
+
+        // Assert
+        assertTrue(result.isCompleted());
+        assertEquals(5, result.getRowsRead());
+        assertEquals(3, result.getRowsImported());
+        assertEquals(2, result.getRowsRejected());
+        assertEquals(2, bookRepository.count());
+        Book updated = bookRepository.searchBooks("55662").get(0);
+        assertEquals("Java核心技术（第12版）", updated.getTitle());
+        assertEquals(5, updated.getStock());
+        assertEquals(1, bookService.searchBooks("设计模式, 第2版").size());
+    }
+
+    @Test
+    @DisplayName("借出期间重新导入：库存不被目录中的册数覆盖")
+    public void testReimportKeepsLoanedStock() {
+        // Arrange
+        String csv = "title,isbn,stock\n" + "深入理解计算机系统,978-7-111-54493-7,3\n";
+        bookImportService.importBooks(stream(csv), BookImportService.Format.CSV, 0);
+        Book book = bookRepository.searchBooks("54493").get(0);
+        borrowingService.borrowBook(1L, book.getBookId());
+
+        // Act
+        String again = "title,isbn,stock\n" + "深入理解计算机系统（第3版）,978-7-111-54493-7,3\n";
+        ImportResult result = bookImportService.importBooks(stream(again), BookImportService.Format.CSV, 0);
+
+        // Assert
+        assertEquals(1, result.getRowsImported());
+        Book reimported = bookRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals("深入理解计算机系统（第3版）", reimported.getTitle());
+        assertEquals(2, reimported.getStock());
+    }
+
+    @Test
+    @DisplayName("NDJSON 导入")
+    public void testImportNdjson() {
+        // Arrange
+        String ndjson = "{\"title\":\"计算机网络\",\"author\":\"Andrew S. Tanenbaum\",\"isbn\":\"978-0-13-359440-9\",\"stock\":4}\n"
+                + "not json\n"
+                + "{\"title\":\"编译原理\",\"isbn\":\"9780201633610\"}\n";
+
+        // Act
+        ImportResult result = bookImportService.importBooks(stream(ndjson), BookImportService.Format.NDJSON, 0);
+
+        // Assert
+        assertTrue(result.isCompleted());
+        assertEquals(2, result.getRowsImported());
+        assertEquals(1, result.getRowsRejected());
+        assertTrue(result.getErrors().get(0).startsWith("line 2"));
+        assertEquals(2, bookRepository.count());
+    }
+
+    @Test
+    @DisplayName("中途失败后从 lastCommittedLine 续传")
+    public void testResumeAfterFailure() {
+        // Arrange: 7 行数据，读到第 5 行后输入流出错
+        List<String> isbns = List.of("9780201633610", "9780133594409", "9787111556626",
+                "0306406152", "080442957X", "9780306406157", "9780262033848");
+        StringBuilder csv = new StringBuilder("title,isbn,stock\n");
+        for (int i = 0; i < isbns.size(); i++) {
+            csv.append("Book ").append(i).append(',').append(isbns.get(i)).append(",1\n");
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        int cut = csv.indexOf("Book 4");
+        List<Long> checkpoints = new ArrayList<>();
+
+        // Act
+        ImportResult failed = bookImportService.importBooks(failingAfter(bytes, cut),
+                BookImportService.Format.CSV, 0, checkpoints::add);
+        ImportResult resumed = bookImportService.importBooks(new ByteArrayInputStream(bytes),
+                BookImportService.Format.CSV, failed.getLastCommittedLine());
+
+        // Assert
+        assertFalse(failed.isCompleted());
+        assertNotNull(failed.getFailure());
+        assertEquals(5, failed.getLastCommittedLine());
+        assertEquals(List.of(3L, 5L), checkpoints);
+        assertTrue(resumed.isCompleted());
+        assertEquals(3, resumed.getRowsRead());
+        assertEquals(7, bookRepository.count());
+    }
+
+    private static InputStream failingAfter(byte[] bytes, int limit) {
+        return new InputStream() {
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                if (position >= limit) {
+                    throw new IOException("connection reset");
+                }
+                return bytes[position++];
+            }
+        };
+    }
+}
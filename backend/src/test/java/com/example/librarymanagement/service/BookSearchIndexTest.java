@@ -0,0 +1,99 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("图书检索索引测试")
+public class BookSearchIndexTest {
+
+    @Test
+    @DisplayName("重建期间的检索始终看到完整的旧索引或新索引")
+    public void testSearchDuringRebuildSeesCompleteIndex() throws Exception {
+        // Arrange
+        List<Book> books = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            books.add(book(id, "深入理解Java虚拟机 第" + id + "版", "周志明"));
+        }
+        BookSearchIndex index = new BookSearchIndex();
+        index.rebuild(books);
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch searching = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Act
+        Future<Integer> smallest = executor.submit(() -> {
+            int min = Integer.MAX_VALUE;
+            while (running.get()) {
+                min = Math.min(min, index.search("周志明").size());
+                searching.countDown();
+            }
+            return min;
+        });
+        searching.await();
+        for (int i = 0; i < 20; i++) {
+            index.rebuild(books);
+        }
+        running.set(false);
+
+        // Assert
+        assertEquals(books.size(), smallest.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("增量索引和删除在重建后继续生效")
+    public void testIndexAndRemoveAfterRebuild() {
+        // Arrange
+        BookSearchIndex index = new BookSearchIndex();
+        index.rebuild(List.of(book(1L, "重构", "Martin Fowler")));
+
+        // Act
+        index.index(book(2L, "重构与模式", "Joshua Kerievsky"));
+        index.remove(1L);
+
+        // Assert
+        assertEquals(List.of(2L), index.search("重构"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("读取快照期间的新增和删除在替换后不丢失")
+    public void testChangesDuringRebuildSurviveSwap() {
+        // Arrange
+        BookSearchIndex index = new BookSearchIndex();
+        List<Book> snapshot = List.of(book(1L, "重构", "Martin Fowler"), book(2L, "重构与模式", "Joshua Kerievsky"));
+        index.rebuild(snapshot);
+
+        // Act: 快照读取完成后、替换前，另一个请求新增了 3 号并删除了 2 号
+        index.rebuild(() -> {
+            index.index(book(3L, "重构（第2版）", "Martin Fowler"));
+            index.remove(2L);
+            return snapshot;
+        });
+
+        // Assert
+        assertEquals(List.of(1L, 3L), index.search("重构"));
+        assertEquals(2, index.size());
+    }
+
+    private static Book book(Long id, String title, String author) {
+        Book book = new Book();
+        book.setBookId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setIsbn("978-" + id);
+        return book;
+    }
+}
@@ -2,12 +2,17 @@ package com.example.librarymanagement.service;
 
 import com.example.librarymanagement.entity.Book;
 import com.example.librarymanagement.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.util.Arrays;
 import java.util.List;
@@ -15,6 +20,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -27,10 +33,20 @@ public class BookServiceTest {
     @MockBean
     private BookRepository bookRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LibraryStatistics libraryStatistics;
+
     private Book testBook;
 
     @BeforeEach
     public void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
         testBook = new Book();
         testBook.setBookId(1L);
         testBook.setTitle("Java核心技术");
@@ -52,7 +68,9 @@ public class BookServiceTest {
         book2.setTitle("Java设计模式");
         book2.setAuthor("Gang of Four");
         List<Book> books = Arrays.asList(testBook, book2);
-        when(bookRepository.searchBooks("Java")).thenReturn(books);
+        when(bookRepository.findAll()).thenReturn(books);
+        when(bookRepository.findAllById(any())).thenReturn(books);
+        bookService.rebuildSearchIndex();
 
         // Act
         List<Book> results = bookService.searchBooks("Java");
@@ -61,14 +79,47 @@ public class BookServiceTest {
         assertNotNull(results);
         assertEquals(2, results.size());
         assertTrue(results.stream().allMatch(b -> b.getTitle().contains("Java")));
-        verify(bookRepository, times(1)).searchBooks("Java");
+        verify(bookRepository, never()).searchBooks("Java");
+    }
+
+    @Test
+    @DisplayName("搜索耗时计入 library.search 计时器")
+    public void testSearchBooksTimed() {
+        // Arrange
+        when(bookRepository.findAll()).thenReturn(Arrays.asList(testBook));
+        bookService.rebuildSearchIndex();
+        Timer before = meterRegistry.find(LibraryMetrics.SEARCH).tag("outcome", "success").timer();
+        long countBefore = before == null ? 0 : before.count();
+
+        // Act
+        bookService.searchBooks("NotExist");
+
+        // Assert
+        Timer timer = meterRegistry.find(LibraryMetrics.SEARCH).tag("outcome", "success").timer();
+        assertNotNull(timer);
+        assertEquals(countBefore + 1, timer.count());
+    }
+
+    @Test
+    @DisplayName("图书缓存命中计入 cache.gets 指标")
+    public void testCacheHitMetrics() {
+        // Arrange
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+
+        // Act
+        bookService.findById(1L);
+        bookService.findById(1L);
+
+        // Assert
+        assertNotNull(meterRegistry.find("cache.gets").tag("cache", "books").tag("result", "hit").functionCounter());
     }
 
     @Test
     @DisplayName("搜索图书无结果")
     public void testSearchBooksNoResults() {
         // Arrange
-        when(bookRepository.searchBooks("NotExist")).thenReturn(Arrays.asList());
+        when(bookRepository.findAll()).thenReturn(Arrays.asList(testBook));
+        bookService.rebuildSearchIndex();
 
         // Act
         List<Book> results = bookService.searchBooks("NotExist");
@@ -76,7 +127,54 @@ public class BookServiceTest {
         // Assert
         assertNotNull(results);
         assertTrue(results.isEmpty());
-        verify(bookRepository, times(1)).searchBooks("NotExist");
+        verify(bookRepository, never()).searchBooks("NotExist");
+        verify(bookRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("搜索中文关键字并按相关度排序")
+    public void testSearchBooksCjkRanking() {
+        // Arrange
+        Book book2 = new Book();
+        book2.setBookId(2L);
+        book2.setTitle("深入理解Java虚拟机");
+        book2.setAuthor("周志明");
+        book2.setIsbn("978-7-111-64124-7");
+        Book book3 = new Book();
+        book3.setBookId(3L);
+        book3.setTitle("核心技术");
+        book3.setAuthor("佚名");
+        book3.setIsbn("978-0-000-00000-0");
+        when(bookRepository.findAll()).thenReturn(Arrays.asList(testBook, book2, book3));
+        when(bookRepository.findAllById(any())).thenReturn(Arrays.asList(testBook, book3));
+        bookService.rebuildSearchIndex();
+
+        // Act
+        List<Book> results = bookService.searchBooks("核心技术");
+        List<Book> singleChar = bookService.searchBooks("核");
+
+        // Assert
+        assertEquals(2, results.size());
+        assertEquals(3L, results.get(0).getBookId());
+        assertEquals(1L, results.get(1).getBookId());
+        assertEquals(2, singleChar.size());
+    }
+
+    @Test
+    @DisplayName("保存和删除图书时同步更新检索索引")
+    public void testSearchIndexUpdatedOnSaveAndDelete() {
+        // Arrange
+        when(bookRepository.findAll()).thenReturn(Arrays.asList());
+        bookService.rebuildSearchIndex();
+        when(bookRepository.save(testBook)).thenReturn(testBook);
+        when(bookRepository.findAllById(any())).thenReturn(Arrays.asList(testBook));
+
+        // Act & Assert
+        bookService.save(testBook);
+        assertEquals(1, bookService.searchBooks("horstmann").size());
+
+        bookService.delete(1L);
+        assertTrue(bookService.searchBooks("horstmann").isEmpty());
     }
 
     @Test
@@ -125,6 +223,45 @@ public class BookServiceTest {
         verify(bookRepository, times(1)).findById(999L);
     }
 
+    @Test
+    @DisplayName("按ID查找图书命中缓存")
+    public void testFindByIdCached() {
+        // Arrange
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+
+        // Act
+        bookService.findById(1L);
+        Book cached = bookService.findById(1L);
+
+        // Assert
+        assertEquals("Java核心技术", cached.getTitle());
+        verify(bookRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("保存、删除和库存变更时更新缓存")
+    public void testCacheInvalidation() {
+        // Arrange
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+        when(bookRepository.save(testBook)).thenReturn(testBook);
+        when(bookRepository.decrementStock(1L)).thenReturn(1);
+
+        // Act & Assert: save 写入缓存
+        bookService.save(testBook);
+        bookService.findById(1L);
+        verify(bookRepository, never()).findById(1L);
+
+        // 库存变更后失效
+        bookService.decreaseStock(1L);
+        bookService.findById(1L);
+        verify(bookRepository, times(1)).findById(1L);
+
+        // 删除后失效
+        bookService.delete(1L);
+        bookService.findById(1L);
+        verify(bookRepository, times(2)).findById(1L);
+    }
+
     // ============ 库存检查测试 ============
 
     @Test
@@ -177,33 +314,29 @@ public class BookServiceTest {
     @DisplayName("减少库存成功")
     public void testDecreaseStockSuccess() {
         // Arrange
-        testBook.setStock(5);
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
-        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> {
-            Book book = invocation.getArgument(0);
-            return book;
-        });
+        when(bookRepository.decrementStock(1L)).thenReturn(1);
 
         // Act
-        bookService.decreaseStock(1L);
+        boolean decreased = bookService.decreaseStock(1L);
 
         // Assert
-        assertEquals(4, testBook.getStock());
-        verify(bookRepository, times(1)).save(any(Book.class));
+        assertTrue(decreased);
+        verify(bookRepository, times(1)).decrementStock(1L);
+        verify(bookRepository, never()).findById(1L);
+        verify(bookRepository, never()).save(any(Book.class));
     }
 
     @Test
     @DisplayName("减少库存不能为负数")
     public void testDecreaseStockNotNegative() {
         // Arrange
-        testBook.setStock(0);
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+        when(bookRepository.decrementStock(1L)).thenReturn(0);
 
         // Act
-        bookService.decreaseStock(1L);
+        boolean decreased = bookService.decreaseStock(1L);
 
         // Assert
-        assertEquals(0, testBook.getStock());
+        assertFalse(decreased);
         verify(bookRepository, never()).save(any(Book.class));
     }
 
@@ -211,12 +344,13 @@ public class BookServiceTest {
     @DisplayName("减少库存图书不存在")
     public void testDecreaseStockBookNotFound() {
         // Arrange
-        when(bookRepository.findById(999L)).thenReturn(Optional.empty());
+        when(bookRepository.decrementStock(999L)).thenReturn(0);
 
         // Act
-        bookService.decreaseStock(999L);
+        boolean decreased = bookService.decreaseStock(999L);
 
         // Assert
+        assertFalse(decreased);
         verify(bookRepository, never()).save(any(Book.class));
     }
 
@@ -224,31 +358,28 @@ public class BookServiceTest {
     @DisplayName("增加库存成功")
     public void testIncreaseStockSuccess() {
         // Arrange
-        testBook.setStock(3);
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
-        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> {
-            Book book = invocation.getArgument(0);
-            return book;
-        });
+        when(bookRepository.incrementStock(1L)).thenReturn(1);
 
         // Act
-        bookService.increaseStock(1L);
+        boolean increased = bookService.increaseStock(1L);
 
         // Assert
-        assertEquals(4, testBook.getStock());
-        verify(bookRepository, times(1)).save(any(Book.class));
+        assertTrue(increased);
+        verify(bookRepository, times(1)).incrementStock(1L);
+        verify(bookRepository, never()).save(any(Book.class));
     }
 
     @Test
     @DisplayName("增加库存图书不存在")
     public void testIncreaseStockBookNotFound() {
         // Arrange
-        when(bookRepository.findById(999L)).thenReturn(Optional.empty());
+        when(bookRepository.incrementStock(999L)).thenReturn(0);
 
         // Act
-        bookService.increaseStock(999L);
+        boolean increased = bookService.increaseStock(999L);
 
         // Assert
+        assertFalse(increased);
         verify(bookRepository, never()).save(any(Book.class));
     }
 
@@ -273,13 +404,31 @@ public class BookServiceTest {
     @DisplayName("删除图书成功")
     public void testDeleteBookSuccess() {
         // Arrange
-        doNothing().when(bookRepository).deleteById(1L);
+        when(bookRepository.deleteBookById(1L)).thenReturn(1);
+        libraryStatistics.bookAdded();
+        Object before = libraryStatistics.snapshot().get("totalBooks");
 
         // Act
         bookService.delete(1L);
 
         // Assert
-        verify(bookRepository, times(1)).deleteById(1L);
+        verify(bookRepository, times(1)).deleteBookById(1L);
+        assertEquals((Long) before - 1, libraryStatistics.snapshot().get("totalBooks"));
+    }
+
+    @Test
+    @DisplayName("删除不存在的图书不改变统计")
+    public void testDeleteBookNotFound() {
+        // Arrange
+        when(bookRepository.deleteBookById(999L)).thenReturn(0);
+        Object before = libraryStatistics.snapshot().get("totalBooks");
+
+        // Act
+        bookService.delete(999L);
+
+        // Assert
+        verify(bookRepository, times(1)).deleteBookById(999L);
+        assertEquals(before, libraryStatistics.snapshot().get("totalBooks"));
     }
 
     @Test
@@ -301,6 +450,22 @@ public class BookServiceTest {
         verify(bookRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("按主键游标分页查询图书")
+    public void testFindPage() {
+        // Arrange
+        when(bookRepository.findByBookIdGreaterThanOrderByBookIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(testBook));
+
+        // Act
+        List<Book> page = bookService.findPage(0L, 51);
+
+        // Assert
+        assertEquals(1, page.size());
+        verify(bookRepository, times(1)).findByBookIdGreaterThanOrderByBookIdAsc(0L, PageRequest.of(0, 51));
+        verify(bookRepository, never()).findAll();
+    }
+
     @Test
     @DisplayName("获取图书总数")
     public void testGetTotalBooks() {
@@ -0,0 +1,268 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.dto.BatchResult;
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.entity.User;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("乐观锁版本与冲突重试测试")
+public class BookVersioningTest {
+
+    @SpyBean
+    private BookService bookService;
+
+    @Autowired
+    private BorrowingService borrowingService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Book book;
+    private Long userId;
+
+    @BeforeEach
+    public void setUp() {
+        borrowingRepository.deleteAll();
+        bookRepository.deleteAll();
+        User reader = userRepository.findByUsername("versioning");
+        if (reader == null) {
+            reader = new User();
+            reader.setUsername("versioning");
+            reader.setPassword("x");
+            reader.setRole(User.Role.STUDENT);
+            reader = userRepository.save(reader);
+        }
+        userId = reader.getUserId();
+        Book newBook = new Book();
+        newBook.setTitle("重构");
+        newBook.setAuthor("Martin Fowler");
+        newBook.setIsbn("978-7-115-50865-6");
+        newBook.setCategory("Programming");
+        newBook.setStock(5);
+        book = bookService.save(newBook);
+    }
+
+    @Test
+    @DisplayName("客户端版本号过期时拒绝更新，最新版本号可以提交")
+    public void testStaleClientVersionRejected() {
+        // Arrange
+        Long version = book.getVersion();
+        bookService.update(book.getBookId(), version, b -> b.setLocation("A1-01"));
+
+        // Act & Assert
+        assertThrows(VersionConflictException.class,
+                () -> bookService.update(book.getBookId(), version, b -> b.setStock(1)));
+        Book updated = bookService.update(book.getBookId(), version + 1, b -> b.setStock(1));
+        assertEquals(1, updated.getStock());
+        assertEquals("A1-01", updated.getLocation());
+        assertEquals(version + 2, updated.getVersion());
+    }
+
+    @Test
+    @DisplayName("不带版本号的库存修改被拒绝，期间提交的借书不会被覆盖")
+    public void testStockEditRequiresVersion() {
+        // Arrange: 客户端读到库存 5 后有人借走一本
+        borrowingService.borrowBook(userId, book.getBookId());
+
+        // Act & Assert
+        assertThrows(VersionConflictException.class,
+                () -> bookService.update(book.getBookId(), null, b -> b.setStock(book.getStock())));
+        Book updated = bookService.update(book.getBookId(), null, b -> {
+            b.setStock(4);
+            b.setLocation("A1-02");
+        });
+        assertEquals(4, updated.getStock());
+        assertEquals("A1-02", updated.getLocation());
+    }
+
+    @Test
+    @DisplayName("借书的条件 UPDATE 递增版本号，旧版本的编辑被拒绝")
+    public void testBorrowBumpsVersion() {
+        // Arrange
+        Long version = book.getVersion();
+
+        // Act
+        borrowingService.borrowBook(userId, book.getBookId());
+
+        // Assert
+        assertEquals(version + 1, bookRepository.findById(book.getBookId()).orElseThrow().getVersion());
+        assertThrows(VersionConflictException.class,
+                () -> bookService.update(book.getBookId(), version, b -> b.setStock(10)));
+    }
+
+    @Test
+    @DisplayName("提交时发现并发修改：重新读取后再应用，两次修改都保留并记录冲突")
+    public void testConcurrentModificationRetried() throws Exception {
+        // Arrange
+        double retriesBefore = retryCount("book_update");
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act: 第一次应用修改时，另一个线程抢先提交了一次更新
+        Book updated = bookService.update(book.getBookId(), null, b -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread writer = new Thread(() -> bookService.update(book.getBookId(), null, other -> other.setLocation("B2-02")));
+                writer.start();
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            b.setCategory("Refactoring");
+        });
+
+        // Assert
+        assertEquals(2, attempts.get());
+        assertEquals("Refactoring", updated.getCategory());
+        assertEquals("B2-02", updated.getLocation());
+        assertEquals(retriesBefore + 1, retryCount("book_update"));
+        Map<String, Object> hotspot = bookService.getConflictHotspots(10).stream()
+                .filter(h -> book.getBookId().equals(h.get("bookId")))
+                .findFirst().orElseThrow();
+        assertEquals("重构", hotspot.get("title"));
+    }
+
+    @Test
+    @DisplayName("并发归还同一条借阅：只有一次成功，库存只增加一次")
+    public void testConcurrentReturnCountsOnce() throws Exception {
+        // Arrange
+        Borrowing borrowing = borrowingService.borrowBook(userId, book.getBookId());
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger succeeded = new AtomicInteger();
+
+        // Act
+        Future<?>[] futures = new Future<?>[threads];
+        for (int i = 0; i < threads; i++) {
+            futures[i] = pool.submit(() -> {
+                start.await();
+                try {
+                    borrowingService.returnBook(borrowing.getBorrowingId());
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    assertEquals("Invalid borrowing record", e.getMessage());
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        // Assert
+        assertEquals(1, succeeded.get());
+        assertEquals(5, bookRepository.findById(book.getBookId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("还书时借阅记录版本冲突：重试成功，冲突计入所借图书")
+    public void testReturnConflictCountedAgainstBook() throws Exception {
+        // Arrange: 第一次归还库存时，另一个事务抢先修改了这条借阅
+        Borrowing borrowing = borrowingService.borrowBook(userId, book.getBookId());
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                touch(borrowing.getBorrowingId());
+            }
+            return invocation.callRealMethod();
+        }).when(bookService).increaseStock(anyLong());
+        double retriesBefore = retryCount("return");
+
+        // Act
+        Borrowing returned = borrowingService.returnBook(borrowing.getBorrowingId());
+
+        // Assert
+        assertEquals(2, attempts.get());
+        assertNotNull(returned.getReturnDate());
+        assertEquals(retriesBefore + 1, retryCount("return"));
+        assertTrue(isHotspot(book.getBookId()));
+    }
+
+    @Test
+    @DisplayName("批量还书时借阅记录版本冲突：冲突计入冲突借阅所借的图书")
+    public void testBatchReturnConflictCountedAgainstBook() throws Exception {
+        // Arrange
+        Book other = new Book();
+        other.setTitle("代码大全");
+        other.setAuthor("Steve McConnell");
+        other.setIsbn("978-7-121-02298-2");
+        other.setCategory("Programming");
+        other.setStock(5);
+        other = bookService.save(other);
+        Borrowing borrowing = borrowingService.borrowBook(userId, other.getBookId());
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                touch(borrowing.getBorrowingId());
+            }
+            return invocation.callRealMethod();
+        }).when(bookService).releaseStock(anyCollection());
+
+        // Act
+        BatchResult result = borrowingService.returnBooks(List.of(borrowing.getBorrowingId()), userId);
+
+        // Assert
+        assertEquals(2, attempts.get());
+        assertEquals(1, result.getSucceeded());
+        assertTrue(isHotspot(other.getBookId()));
+    }
+
+    // 在另一个线程的独立事务中修改借阅记录，使其版本号前进
+    private void touch(Long borrowingId) throws InterruptedException {
+        Thread writer = new Thread(() -> {
+            Borrowing current = borrowingRepository.findById(borrowingId).orElseThrow();
+            current.setDueDate(current.getDueDate().plusDays(1));
+            borrowingRepository.save(current);
+        });
+        writer.start();
+        writer.join();
+    }
+
+    private boolean isHotspot(Long bookId) {
+        return bookService.getConflictHotspots(10).stream().anyMatch(h -> bookId.equals(h.get("bookId")));
+    }
+
+    private double retryCount(String operation) {
+        Counter counter = meterRegistry.find(LibraryMetrics.STOCK_CONFLICT_RETRIES).tag("operation", operation).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.dto.BorrowingView;
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.entity.User;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingHistoryRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("借阅归档（冷热分离）测试")
+public class BorrowingArchiverTest {
+
+    @Autowired
+    private BorrowingArchiver borrowingArchiver;
+
+    @Autowired
+    private BorrowingService borrowingService;
+
+    @Autowired
+    private BorrowingExportService borrowingExportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private BorrowingHistoryRepository borrowingHistoryRepository;
+
+    private Long userId;
+    private Long bookId;
+
+    @BeforeEach
+    public void setUp() {
+        borrowingHistoryRepository.deleteAll();
+        borrowingRepository.deleteAll();
+        bookRepository.deleteAll();
+        User reader = userRepository.findByUsername("archiver");
+        if (reader == null) {
+            reader = new User();
+            reader.setUsername("archiver");
+            reader.setPassword("x");
+            reader.setRole(User.Role.STUDENT);
+            reader = userRepository.save(reader);
+        }
+        userId = reader.getUserId();
+        Book book = new Book();
+        book.setTitle("数据密集型应用系统设计");
+        book.setAuthor("Martin Kleppmann");
+        book.setIsbn("978-7-5198-0303-4");
+        book.setCategory("Programming");
+        book = bookRepository.save(book);
+        bookId = book.getBookId();
+        LocalDateTime now = LocalDateTime.now();
+        // 5 条一年前已归还，1 条上周归还，1 条未归还
+        for (int i = 0; i < 5; i++) {
+            save(now.minusDays(400 + i), now.minusDays(380 + i));
+        }
+        save(now.minusDays(10), now.minusDays(7));
+        save(now.minusDays(1), null);
+    }
+
+    private void save(LocalDateTime borrowDate, LocalDateTime returnDate) {
+        Borrowing borrowing = new Borrowing();
+        borrowing.setUserId(userId);
+        borrowing.setBookId(bookId);
+        borrowing.setBorrowDate(borrowDate);
+        borrowing.setDueDate(borrowDate.plusDays(14));
+        borrowing.setReturnDate(returnDate);
+        borrowingRepository.save(borrowing);
+    }
+
+    @Test
+    @DisplayName("分块搬运早于阈值的已归还记录，未归还和近期归还的保留在热表")
+    public void testArchiveMovesOldReturnedLoans() {
+        // Act
+        long moved = borrowingArchiver.archive(180);
+
+        // Assert
+        assertEquals(5, moved);
+        assertEquals(2, borrowingRepository.count());
+        assertEquals(5, borrowingHistoryRepository.count());
+        assertEquals(1, borrowingRepository.countByReturnDateIsNull());
+        assertNotNull(borrowingHistoryRepository.findAll().get(0).getArchivedAt());
+        assertEquals(0, borrowingArchiver.archive(180));
+    }
+
+    @Test
+    @DisplayName("用户历史、分页列表、报表与导出透明合并归档记录")
+    public void testReadsUnionHistory() throws Exception {
+        // Arrange
+        borrowingArchiver.archive(180);
+
+        // Act
+        List<BorrowingView> views = borrowingService.getBorrowingViewsByUser(userId);
+        List<BorrowingView> firstPage = borrowingService.getBorrowingsPage(0L, 4);
+        List<BorrowingView> secondPage = borrowingService.getBorrowingsPage(firstPage.get(3).getBorrowingId(), 4);
+        List<Map<String, Object>> popular = borrowingService.getPopularBooks();
+        List<Map<String, Object>> userStats = borrowingService.getUserBorrowingStats();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = borrowingExportService.export(out, BorrowingExportService.Format.CSV, null, null);
+
+        // Assert
+        assertEquals(7, views.size());
+        assertTrue(views.get(0).getBorrowDate().isAfter(views.get(6).getBorrowDate()));
+        assertEquals("archiver", views.get(6).getUsername());
+        assertEquals("数据密集型应用系统设计", views.get(6).getBookTitle());
+        assertEquals(4, firstPage.size());
+        assertEquals(3, secondPage.size());
+        assertTrue(firstPage.get(3).getBorrowingId() < secondPage.get(0).getBorrowingId());
+        assertEquals(7L, ((Number) popular.get(0).get("borrowCount")).longValue());
+        assertEquals(7L, ((Number) userStats.get(0).get("borrowCount")).longValue());
+        assertEquals(7, borrowingService.getTotalBorrowings());
+        assertEquals(7, exported);
+        assertEquals(8, out.toString(StandardCharsets.UTF_8).split("\n").length);
+    }
+}
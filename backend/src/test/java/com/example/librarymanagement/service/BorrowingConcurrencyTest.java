@@ -0,0 +1,164 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("借书并发测试")
+public class BorrowingConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BorrowingConcurrencyTest.class);
+
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 40;
+
+    @Autowired
+    private BorrowingService borrowingService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Test
+    @DisplayName("热门图书并发借阅不会超借")
+    public void testConcurrentBorrowNoOversell() throws Exception {
+        // Arrange
+        int stock = 50;
+        Book hotBook = createBook("978-0-00-000001-1", stock);
+
+        // Act
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger rejections = new AtomicInteger();
+        runConcurrently(userId -> {
+            try {
+                borrowingService.borrowBook(userId, hotBook.getBookId());
+                successes.incrementAndGet();
+            } catch (RuntimeException e) {
+                rejections.incrementAndGet();
+            }
+        });
+
+        // Assert
+        assertEquals(stock, successes.get());
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD - stock, rejections.get());
+        assertEquals(0, bookRepository.findById(hotBook.getBookId()).orElseThrow().getStock());
+        assertEquals(stock, borrowingRepository.findByBookIdAndReturnDateIsNull(hotBook.getBookId()).size());
+    }
+
+    @Test
+    @DisplayName("条件更新与读-改-写的吞吐量对比")
+    public void testConditionalUpdateThroughput() throws Exception {
+        int attempts = THREADS * ATTEMPTS_PER_THREAD;
+
+        // 旧实现：findById -> 判断 -> save；有版本号后丢失更新变成乐观锁冲突
+        Book legacyBook = createBook("978-0-00-000002-2", attempts);
+        AtomicInteger legacySuccesses = new AtomicInteger();
+        AtomicInteger legacyConflicts = new AtomicInteger();
+        long legacyNanos = runConcurrently(userId -> {
+            Book book = bookRepository.findById(legacyBook.getBookId()).orElseThrow();
+            if (book.getStock() > 0) {
+                book.setStock(book.getStock() - 1);
+                try {
+                    bookRepository.save(book);
+                } catch (OptimisticLockingFailureException e) {
+                    legacyConflicts.incrementAndGet();
+                    return;
+                }
+                borrowingRepository.save(newBorrowing(userId, book.getBookId()));
+                legacySuccesses.incrementAndGet();
+            }
+        });
+        int legacyStock = bookRepository.findById(legacyBook.getBookId()).orElseThrow().getStock();
+
+        // 新实现：单条条件 UPDATE
+        Book atomicBook = createBook("978-0-00-000003-3", attempts);
+        AtomicInteger atomicSuccesses = new AtomicInteger();
+        long atomicNanos = runConcurrently(userId -> {
+            borrowingService.borrowBook(userId, atomicBook.getBookId());
+            atomicSuccesses.incrementAndGet();
+        });
+        int atomicStock = bookRepository.findById(atomicBook.getBookId()).orElseThrow().getStock();
+
+        logger.debug("read-modify-write: {} borrows/sec, lost updates={}, version conflicts={}",
+                Math.round(legacySuccesses.get() / (legacyNanos / 1e9)), legacySuccesses.get() - (attempts - legacyStock),
+                legacyConflicts.get());
+        logger.debug("conditional update: {} borrows/sec, lost updates={}",
+                Math.round(atomicSuccesses.get() / (atomicNanos / 1e9)), atomicSuccesses.get() - (attempts - atomicStock));
+
+        // 每次成功借阅都恰好扣减一本库存
+        assertEquals(attempts, atomicSuccesses.get());
+        assertEquals(0, atomicStock);
+    }
+
+    private Book createBook(String isbn, int stock) {
+        Book book = new Book();
+        book.setTitle("Hot Title " + isbn);
+        book.setAuthor("Contention");
+        book.setIsbn(isbn);
+        book.setCategory("Test");
+        book.setStock(stock);
+        return bookRepository.save(book);
+    }
+
+    private Borrowing newBorrowing(Long userId, Long bookId) {
+        Borrowing borrowing = new Borrowing();
+        borrowing.setUserId(userId);
+        borrowing.setBookId(bookId);
+        borrowing.setBorrowDate(LocalDateTime.now());
+        borrowing.setDueDate(LocalDateTime.now().plusDays(14));
+        return borrowing;
+    }
+
+    private long runConcurrently(BorrowAttempt attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long userId = t + 1;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    attempt.run(userId);
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private interface BorrowAttempt {
+        void run(Long userId);
+    }
+}
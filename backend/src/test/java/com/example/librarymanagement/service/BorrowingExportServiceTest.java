@@ -0,0 +1,128 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.entity.User;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("借阅记录流式导出测试")
+public class BorrowingExportServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+
+    @Autowired
+    private BorrowingExportService borrowingExportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        borrowingRepository.deleteAll();
+        bookRepository.deleteAll();
+        User reader = userRepository.findByUsername("exporter");
+        if (reader == null) {
+            reader = new User();
+            reader.setUsername("exporter");
+            reader.setPassword("x");
+            reader.setRole(User.Role.STUDENT);
+            reader = userRepository.save(reader);
+        }
+        Book book = new Book();
+        book.setTitle("设计模式, \"GoF\"");
+        book.setAuthor("Gang of Four");
+        book.setIsbn("978-0-201-63361-0");
+        book.setCategory("Programming");
+        book = bookRepository.save(book);
+        // 2024-03-01 起每天一条借阅，共 10 条
+        for (int i = 0; i < 10; i++) {
+            Borrowing borrowing = new Borrowing();
+            borrowing.setUserId(reader.getUserId());
+            borrowing.setBookId(book.getBookId());
+            borrowing.setBorrowDate(START.plusDays(i).atTime(10, 0));
+            borrowing.setDueDate(START.plusDays(i + 14).atTime(10, 0));
+            if (i % 2 == 0) {
+                borrowing.setReturnDate(LocalDateTime.of(2024, 4, 1, 9, 0));
+                borrowing.setFine(new BigDecimal("1.50"));
+            }
+            borrowingRepository.save(borrowing);
+        }
+    }
+
+    @Test
+    @DisplayName("CSV 导出：表头、转义与日期过滤（含首尾两天）")
+    public void testCsvWithDateRange() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = borrowingExportService.export(out, BorrowingExportService.Format.CSV,
+                START.plusDays(2), START.plusDays(5));
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, rows);
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].startsWith("borrowingId,userId,username"));
+        assertTrue(lines[1].contains("exporter,"));
+        assertTrue(lines[1].contains("\"设计模式, \"\"GoF\"\"\""));
+        assertTrue(lines[1].contains("2024-03-03T10:00"));
+        assertTrue(lines[1].endsWith(",1.50"));
+    }
+
+    @Test
+    @DisplayName("NDJSON + gzip 导出全部记录")
+    public void testNdjsonGzip() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows;
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            rows = borrowingExportService.export(gzip, BorrowingExportService.Format.NDJSON, null, null);
+        }
+
+        // Assert
+        byte[] plain = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes();
+        String[] lines = new String(plain, StandardCharsets.UTF_8).split("\n");
+        assertEquals(10, rows);
+        assertEquals(10, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("exporter", first.get("username").asText());
+        assertEquals("978-0-201-63361-0", first.get("isbn").asText());
+        assertEquals(1.5, first.get("fine").asDouble());
+        assertTrue(objectMapper.readTree(lines[1]).get("returnDate").isNull());
+    }
+}
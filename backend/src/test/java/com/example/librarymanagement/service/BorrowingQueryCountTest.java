@@ -0,0 +1,121 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.dto.BorrowingView;
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.entity.User;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("借阅投影查询语句数测试")
+public class BorrowingQueryCountTest {
+
+    private static final int BOOKS = 12;
+
+    @Autowired
+    private BorrowingService borrowingService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    public void setUp() {
+        borrowingRepository.deleteAll();
+        bookRepository.deleteAll();
+        User reader = userRepository.findByUsername("querycount");
+        if (reader == null) {
+            reader = new User();
+            reader.setUsername("querycount");
+            reader.setPassword("x");
+            reader.setRole(User.Role.STUDENT);
+            reader = userRepository.save(reader);
+        }
+        userId = reader.getUserId();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Title " + i);
+            book.setAuthor("Author " + i);
+            book.setIsbn("978-1-000-" + String.format("%05d", i));
+            book.setCategory("Test");
+            book.setStock(1);
+            book = bookRepository.save(book);
+            Borrowing borrowing = new Borrowing();
+            borrowing.setUserId(userId);
+            borrowing.setBookId(book.getBookId());
+            borrowing.setBorrowDate(now.minusDays(30));
+            borrowing.setDueDate(now.minusDays(16));
+            borrowingRepository.save(borrowing);
+        }
+        borrowingService.rebuildDueDateIndex();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("用户借阅历史只执行一条 SQL")
+    public void testHistoryIsSingleStatement() {
+        // Act
+        List<BorrowingView> history = borrowingService.getBorrowingViewsByUser(userId);
+
+        // Assert
+        assertEquals(BOOKS, history.size());
+        assertEquals("querycount", history.get(0).getUsername());
+        assertNotNull(history.get(0).getBookTitle());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("管理员分页列表每页只执行一条 SQL")
+    public void testAdminPagesAreSingleStatement() {
+        // Act & Assert
+        List<BorrowingView> page = borrowingService.getBorrowingsPage(0L, 5);
+        assertEquals(5, page.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        List<BorrowingView> overdue = borrowingService.getOverdueRecordsPage(page.get(4).getBorrowingId(), 5);
+        assertEquals(5, overdue.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("实体列表不再为每本书追加查询")
+    public void testEntityListDoesNotLoadBooks() {
+        // Act
+        List<Borrowing> borrowings = borrowingService.getAllBorrowings();
+
+        // Assert
+        assertEquals(BOOKS, borrowings.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -1,16 +1,23 @@
 package com.example.librarymanagement.service;
 
+import com.example.librarymanagement.dto.BorrowingView;
+import com.example.librarymanagement.entity.Book;
 import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.repository.BorrowingHistoryRepository;
 import com.example.librarymanagement.repository.BorrowingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -18,6 +25,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -30,9 +38,15 @@ public class BorrowingServiceTest {
     @MockBean
     private BorrowingRepository borrowingRepository;
 
+    @MockBean
+    private BorrowingHistoryRepository borrowingHistoryRepository;
+
     @MockBean
     private BookService bookService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private Borrowing testBorrowing;
     private LocalDateTime now;
 
@@ -49,19 +63,23 @@ public class BorrowingServiceTest {
         testBorrowing.setFine(BigDecimal.ZERO);
     }
 
+    private BorrowingView testView() {
+        return new BorrowingView(1L, 1L, "student1", 1L, "Java核心技术", "Cay S. Horstmann",
+                now.minusDays(20), now.minusDays(6), null, BigDecimal.ZERO);
+    }
+
     // ============ 借书测试 ============
 
     @Test
     @DisplayName("成功借书")
     public void testBorrowBookSuccess() {
         // Arrange
-        when(bookService.isAvailable(1L)).thenReturn(true);
+        when(bookService.decreaseStock(1L)).thenReturn(true);
         when(borrowingRepository.save(any(Borrowing.class))).thenAnswer(invocation -> {
             Borrowing borrowing = invocation.getArgument(0);
             borrowing.setBorrowingId(1L);
             return borrowing;
         });
-        doNothing().when(bookService).decreaseStock(1L);
 
         // Act
         Borrowing borrowing = borrowingService.borrowBook(1L, 1L);
@@ -81,25 +99,54 @@ public class BorrowingServiceTest {
     @DisplayName("图书不可用时借书失败")
     public void testBorrowBookNotAvailable() {
         // Arrange
-        when(bookService.isAvailable(1L)).thenReturn(false);
+        when(bookService.decreaseStock(1L)).thenReturn(false);
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> borrowingService.borrowBook(1L, 1L),
                 "Book not available");
-        verify(bookService, never()).decreaseStock(1L);
+        verify(bookService, never()).isAvailable(1L);
         verify(borrowingRepository, never()).save(any(Borrowing.class));
     }
 
+    @Test
+    @DisplayName("借书计时与拒绝计数")
+    public void testBorrowMetrics() {
+        // Arrange
+        when(bookService.decreaseStock(1L)).thenReturn(true);
+        when(bookService.decreaseStock(2L)).thenReturn(false);
+        when(borrowingRepository.save(any(Borrowing.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        long borrowsBefore = timerCount(LibraryMetrics.BORROW, "success");
+        double rejectionsBefore = rejectionCount();
+
+        // Act
+        borrowingService.borrowBook(1L, 1L);
+        assertThrows(RuntimeException.class, () -> borrowingService.borrowBook(1L, 2L));
+
+        // Assert
+        assertEquals(borrowsBefore + 1, timerCount(LibraryMetrics.BORROW, "success"));
+        assertEquals(rejectionsBefore + 1, rejectionCount());
+        assertTrue(timerCount(LibraryMetrics.BORROW, "error") >= 1);
+    }
+
+    private long timerCount(String name, String outcome) {
+        var timer = meterRegistry.find(name).tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double rejectionCount() {
+        var counter = meterRegistry.find(LibraryMetrics.BORROW_REJECTIONS).tag("reason", "out_of_stock").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
     @Test
     @DisplayName("借书时设置正确的应还日期（14天）")
     public void testBorrowBookCorrectDueDate() {
         // Arrange
-        when(bookService.isAvailable(1L)).thenReturn(true);
+        when(bookService.decreaseStock(1L)).thenReturn(true);
         when(borrowingRepository.save(any(Borrowing.class))).thenAnswer(invocation -> {
             Borrowing borrowing = invocation.getArgument(0);
             return borrowing;
         });
-        doNothing().when(bookService).decreaseStock(1L);
 
         // Act
         LocalDateTime beforeBorrow = LocalDateTime.now();
@@ -126,7 +173,7 @@ public class BorrowingServiceTest {
             Borrowing borrowing = invocation.getArgument(0);
             return borrowing;
         });
-        doNothing().when(bookService).increaseStock(1L);
+        when(bookService.increaseStock(1L)).thenReturn(true);
 
         // Act
         Borrowing returnedBorrowing = borrowingService.returnBook(1L);
@@ -163,6 +210,19 @@ public class BorrowingServiceTest {
         verify(bookService, never()).increaseStock(any());
     }
 
+    @Test
+    @DisplayName("只能归还本人的借阅")
+    public void testReturnBookOwnedByOtherUser() {
+        // Arrange
+        when(borrowingRepository.findById(1L)).thenReturn(Optional.of(testBorrowing));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> borrowingService.returnBook(1L, 2L),
+                "Invalid borrowing record");
+        verify(bookService, never()).increaseStock(any());
+        verify(borrowingRepository, never()).save(any(Borrowing.class));
+    }
+
     @Test
     @DisplayName("按时归还不计罚款")
     public void testReturnBookOnTimeNoFine() {
@@ -174,7 +234,7 @@ public class BorrowingServiceTest {
             Borrowing borrowing = invocation.getArgument(0);
             return borrowing;
         });
-        doNothing().when(bookService).increaseStock(1L);
+        when(bookService.increaseStock(1L)).thenReturn(true);
 
         // Act
         Borrowing returnedBorrowing = borrowingService.returnBook(1L);
@@ -195,7 +255,7 @@ public class BorrowingServiceTest {
             Borrowing borrowing = invocation.getArgument(0);
             return borrowing;
         });
-        doNothing().when(bookService).increaseStock(1L);
+        when(bookService.increaseStock(1L)).thenReturn(true);
 
         // Act
         Borrowing returnedBorrowing = borrowingService.returnBook(1L);
@@ -210,57 +270,74 @@ public class BorrowingServiceTest {
     // ============ 查询借阅记录测试 ============
 
     @Test
-    @DisplayName("查询用户的借阅记录成功")
-    public void testGetBorrowingsByUserSuccess() {
+    @DisplayName("查询所有借阅记录")
+    public void testGetAllBorrowings() {
         // Arrange
         Borrowing borrowing2 = new Borrowing();
         borrowing2.setBorrowingId(2L);
-        borrowing2.setUserId(1L);
-        borrowing2.setBookId(2L);
         List<Borrowing> borrowings = Arrays.asList(testBorrowing, borrowing2);
-        when(borrowingRepository.findByUserId(1L)).thenReturn(borrowings);
+        when(borrowingRepository.findAll()).thenReturn(borrowings);
 
         // Act
-        List<Borrowing> userBorrowings = borrowingService.getBorrowingsByUser(1L);
+        List<Borrowing> allBorrowings = borrowingService.getAllBorrowings();
 
         // Assert
-        assertNotNull(userBorrowings);
-        assertEquals(2, userBorrowings.size());
-        assertTrue(userBorrowings.stream().allMatch(b -> b.getUserId().equals(1L)));
-        verify(borrowingRepository, times(1)).findByUserId(1L);
+        assertNotNull(allBorrowings);
+        assertEquals(2, allBorrowings.size());
+        verify(borrowingRepository, times(1)).findAll();
     }
 
     @Test
-    @DisplayName("查询用户无借阅记录")
-    public void testGetBorrowingsByUserNoRecords() {
+    @DisplayName("按主键游标分页查询借阅记录")
+    public void testGetBorrowingsPage() {
         // Arrange
-        when(borrowingRepository.findByUserId(999L)).thenReturn(Arrays.asList());
+        when(borrowingRepository.findViewsAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(testView()));
 
         // Act
-        List<Borrowing> userBorrowings = borrowingService.getBorrowingsByUser(999L);
+        List<BorrowingView> page = borrowingService.getBorrowingsPage(0L, 51);
 
         // Assert
-        assertNotNull(userBorrowings);
-        assertTrue(userBorrowings.isEmpty());
-        verify(borrowingRepository, times(1)).findByUserId(999L);
+        assertEquals(1, page.size());
+        assertEquals("Java核心技术", page.get(0).getBookTitle());
+        verify(borrowingRepository, times(1)).findViewsAfter(0L, PageRequest.of(0, 51));
+        verify(borrowingRepository, never()).findAll();
     }
 
     @Test
-    @DisplayName("查询所有借阅记录")
-    public void testGetAllBorrowings() {
+    @DisplayName("查询用户借阅历史投影")
+    public void testGetBorrowingViewsByUser() {
         // Arrange
-        Borrowing borrowing2 = new Borrowing();
-        borrowing2.setBorrowingId(2L);
-        List<Borrowing> borrowings = Arrays.asList(testBorrowing, borrowing2);
-        when(borrowingRepository.findAll()).thenReturn(borrowings);
+        when(borrowingRepository.findViewsByUserId(1L)).thenReturn(Arrays.asList(testView()));
 
         // Act
-        List<Borrowing> allBorrowings = borrowingService.getAllBorrowings();
+        List<BorrowingView> history = borrowingService.getBorrowingViewsByUser(1L);
 
         // Assert
-        assertNotNull(allBorrowings);
-        assertEquals(2, allBorrowings.size());
-        verify(borrowingRepository, times(1)).findAll();
+        assertEquals(1, history.size());
+        assertEquals("student1", history.get(0).getUsername());
+        verify(borrowingRepository, never()).findByUserId(1L);
+    }
+
+    @Test
+    @DisplayName("按主键游标分页查询逾期记录")
+    public void testGetOverdueRecordsPage() {
+        // Arrange
+        when(borrowingRepository.findOpenLoanDueDates()).thenReturn(Arrays.asList(
+                new Object[] {3L, 1L, 1L, now.minusDays(9)},
+                new Object[] {7L, 1L, 2L, now.minusDays(1)},
+                new Object[] {9L, 2L, 1L, now.minusDays(4)},
+                new Object[] {11L, 2L, 2L, now.plusDays(4)}));
+        when(borrowingRepository.findOpenViewsByIds(Arrays.asList(7L, 9L))).thenReturn(Arrays.asList(testView()));
+        borrowingService.rebuildDueDateIndex();
+
+        // Act
+        List<BorrowingView> page = borrowingService.getOverdueRecordsPage(5L, 51);
+
+        // Assert
+        assertEquals(1, page.size());
+        verify(borrowingRepository, never()).findOverdueViewsAfter(any(), any(), any());
+        verify(borrowingRepository, never()).findByReturnDateIsNull();
     }
 
     @Test
@@ -283,32 +360,29 @@ public class BorrowingServiceTest {
     @DisplayName("获取活跃借阅计数")
     public void testGetActiveBorrowingsCount() {
         // Arrange
-        Borrowing borrowing2 = new Borrowing();
-        borrowing2.setBorrowingId(2L);
-        borrowing2.setReturnDate(null);
-        List<Borrowing> activeBorrowings = Arrays.asList(testBorrowing, borrowing2);
-        when(borrowingRepository.findByReturnDateIsNull()).thenReturn(activeBorrowings);
+        when(borrowingRepository.countByReturnDateIsNull()).thenReturn(2L);
 
         // Act
         long count = borrowingService.getActiveBorrowingsCount();
 
         // Assert
         assertEquals(2L, count);
-        verify(borrowingRepository, times(1)).findByReturnDateIsNull();
+        verify(borrowingRepository, times(1)).countByReturnDateIsNull();
+        verify(borrowingRepository, never()).findByReturnDateIsNull();
     }
 
     @Test
     @DisplayName("无活跃借阅记录")
     public void testGetActiveBorrowingsCountZero() {
         // Arrange
-        when(borrowingRepository.findByReturnDateIsNull()).thenReturn(Arrays.asList());
+        when(borrowingRepository.countByReturnDateIsNull()).thenReturn(0L);
 
         // Act
         long count = borrowingService.getActiveBorrowingsCount();
 
         // Assert
         assertEquals(0L, count);
-        verify(borrowingRepository, times(1)).findByReturnDateIsNull();
+        verify(borrowingRepository, times(1)).countByReturnDateIsNull();
     }
 
     // ============ 逾期记录测试 ============
@@ -317,60 +391,69 @@ public class BorrowingServiceTest {
     @DisplayName("获取逾期借阅记录")
     public void testGetOverdueRecords() {
         // Arrange
-        Borrowing overdueBorrowing = new Borrowing();
-        overdueBorrowing.setBorrowingId(1L);
-        overdueBorrowing.setDueDate(now.minusDays(5)); // 已逾期
-        overdueBorrowing.setReturnDate(null);
-
-        Borrowing normalBorrowing = new Borrowing();
-        normalBorrowing.setBorrowingId(2L);
-        normalBorrowing.setDueDate(now.plusDays(5)); // 未逾期
-        normalBorrowing.setReturnDate(null);
-
-        List<Borrowing> activeBorrowings = Arrays.asList(overdueBorrowing, normalBorrowing);
-        when(borrowingRepository.findByReturnDateIsNull()).thenReturn(activeBorrowings);
+        when(borrowingRepository.findOpenLoanDueDates()).thenReturn(Arrays.asList(
+                new Object[] {1L, 1L, 1L, now.minusDays(5)},
+                new Object[] {2L, 1L, 2L, now.plusDays(5)}));
+        when(borrowingRepository.findOpenViewsByIds(Arrays.asList(1L))).thenReturn(Arrays.asList(testView()));
+        borrowingService.rebuildDueDateIndex();
 
         // Act
-        List<Borrowing> overdueRecords = borrowingService.getOverdueRecords();
+        List<BorrowingView> overdueRecords = borrowingService.getOverdueRecordsPage(0L, 51);
 
         // Assert
-        assertNotNull(overdueRecords);
         assertEquals(1, overdueRecords.size());
         assertTrue(overdueRecords.get(0).getDueDate().isBefore(now));
-        verify(borrowingRepository, times(1)).findByReturnDateIsNull();
+        verify(borrowingRepository, never()).findByReturnDateIsNull();
+    }
+
+    @Test
+    @DisplayName("索引中已在别处归还的借阅被跳过，继续向后取满一页")
+    public void testGetOverdueRecordsSkipsReturnedElsewhere() {
+        // Arrange
+        when(borrowingRepository.findOpenLoanDueDates()).thenReturn(Arrays.asList(
+                new Object[] {1L, 1L, 1L, now.minusDays(5)},
+                new Object[] {2L, 1L, 2L, now.minusDays(4)},
+                new Object[] {3L, 1L, 3L, now.minusDays(3)}));
+        when(borrowingRepository.findOpenViewsByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(testView()));
+        when(borrowingRepository.findOpenViewsByIds(Arrays.asList(3L))).thenReturn(Arrays.asList(testView()));
+        borrowingService.rebuildDueDateIndex();
+
+        // Act
+        List<BorrowingView> overdueRecords = borrowingService.getOverdueRecordsPage(0L, 2);
+
+        // Assert
+        assertEquals(2, overdueRecords.size());
     }
 
     @Test
     @DisplayName("无逾期记录")
     public void testGetOverdueRecordsNone() {
         // Arrange
-        testBorrowing.setDueDate(now.plusDays(10)); // 未逾期
-        List<Borrowing> activeBorrowings = Arrays.asList(testBorrowing);
-        when(borrowingRepository.findByReturnDateIsNull()).thenReturn(activeBorrowings);
+        List<Object[]> openLoans = new ArrayList<>();
+        openLoans.add(new Object[] {1L, 1L, 1L, now.plusDays(10)});
+        when(borrowingRepository.findOpenLoanDueDates()).thenReturn(openLoans);
+        borrowingService.rebuildDueDateIndex();
 
         // Act
-        List<Borrowing> overdueRecords = borrowingService.getOverdueRecords();
+        List<BorrowingView> overdueRecords = borrowingService.getOverdueRecordsPage(0L, 51);
 
         // Assert
-        assertNotNull(overdueRecords);
         assertTrue(overdueRecords.isEmpty());
+        verify(borrowingRepository, never()).findOpenViewsByIds(any());
     }
 
     @Test
     @DisplayName("获取逾期计数")
     public void testGetOverdueCount() {
         // Arrange
-        Borrowing overdueBorrowing = new Borrowing();
-        overdueBorrowing.setDueDate(now.minusDays(5));
-        overdueBorrowing.setReturnDate(null);
-        List<Borrowing> activeBorrowings = Arrays.asList(overdueBorrowing);
-        when(borrowingRepository.findByReturnDateIsNull()).thenReturn(activeBorrowings);
+        when(borrowingRepository.countByReturnDateIsNullAndDueDateBefore(any(LocalDateTime.class))).thenReturn(1L);
 
         // Act
         long count = borrowingService.getOverdueCount();
 
         // Assert
         assertEquals(1L, count);
+        verify(borrowingRepository, never()).findByReturnDateIsNull();
     }
 
     // ============ 统计数据测试 ============
@@ -396,6 +479,54 @@ public class BorrowingServiceTest {
         verify(borrowingRepository, times(1)).getPopularBooks();
     }
 
+    @Test
+    @DisplayName("精确模式按时间窗口查询热门图书")
+    public void testGetPopularBooksExactWindow() {
+        // Arrange
+        Object[] book1 = {1L, "Java核心技术", 4L};
+        List<Object[]> results = new ArrayList<>();
+        results.add(book1);
+        when(borrowingRepository.getPopularBooksSince(any(LocalDateTime.class))).thenReturn(results);
+
+        // Act
+        List<Map<String, Object>> popularBooks = borrowingService.getPopularBooks("7d", true);
+
+        // Assert
+        assertEquals(1, popularBooks.size());
+        assertEquals(4L, popularBooks.get(0).get("borrowCount"));
+        assertEquals(0L, popularBooks.get(0).get("maxError"));
+        verify(borrowingRepository, never()).getPopularBooks();
+    }
+
+    @Test
+    @DisplayName("流式统计模式不执行 GROUP BY 查询")
+    public void testGetPopularBooksFromTracker() {
+        // Arrange
+        List<Object[]> counts = new ArrayList<>();
+        counts.add(new Object[] {1L, 3L});
+        when(borrowingRepository.countBorrowsByBook()).thenReturn(counts);
+        when(borrowingRepository.findBorrowDatesSince(any(LocalDateTime.class))).thenReturn(new ArrayList<>());
+        Book book = new Book();
+        book.setBookId(1L);
+        book.setTitle("Java核心技术");
+        when(bookService.findAllById(any())).thenReturn(Arrays.asList(book));
+        borrowingService.rebuildPopularBooksTracker();
+
+        // Act
+        List<Map<String, Object>> popularBooks = borrowingService.getPopularBooks("all", false);
+
+        // Assert
+        assertFalse(popularBooks.isEmpty());
+        assertEquals("Java核心技术", popularBooks.get(0).get("title"));
+        verify(borrowingRepository, never()).getPopularBooks();
+    }
+
+    @Test
+    @DisplayName("不支持的时间窗口")
+    public void testGetPopularBooksInvalidWindow() {
+        assertThrows(IllegalArgumentException.class, () -> borrowingService.getPopularBooks("1y", false));
+    }
+
     @Test
     @DisplayName("无热门图书")
     public void testGetPopularBooksEmpty() {
@@ -0,0 +1,167 @@
+package com.example.librarymanagement.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("借阅共现矩阵测试")
+public class CoBorrowingIndexTest {
+
+    @Test
+    @DisplayName("开放寻址表扩容后计数与 HashMap 一致")
+    public void testLongIntMapMatchesHashMap() {
+        // Arrange
+        CoBorrowingIndex.LongIntMap map = new CoBorrowingIndex.LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        // Act
+        for (int i = 0; i < 50000; i++) {
+            long key = random.nextInt(5000) + 1L;
+            map.add(key, 1);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, count) -> assertEquals(count.intValue(), map.get(key)));
+        assertEquals(0, map.get(999_999L));
+        int[] visited = { 0 };
+        map.forEach((key, count) -> visited[0]++);
+        assertEquals(expected.size(), visited[0]);
+    }
+
+    @Test
+    @DisplayName("按余弦相似度排序，只与少数读者共现的冷门书不会被热门书淹没")
+    public void testRelatedRanking() {
+        // Arrange: 图书 1 与 2 总是一起借；3 是人人都借的热门书
+        CoBorrowingIndex index = new CoBorrowingIndex();
+        CoBorrowingIndex.Matrix matrix = new CoBorrowingIndex.Matrix(100);
+        matrix.addUser(1, new long[] { 1, 2, 3 });
+        matrix.addUser(2, new long[] { 2, 1, 3 });
+        for (long user = 3; user <= 10; user++) {
+            matrix.addUser(user, new long[] { 3, 4 });
+        }
+        index.beginRebuild();
+        index.install(matrix, 0);
+
+        // Act
+        List<CoBorrowingIndex.Related> related = index.related(1, 10);
+
+        // Assert
+        assertEquals(2, related.size());
+        assertEquals(2L, related.get(0).getBookId());
+        assertEquals(2, related.get(0).getCoBorrowers());
+        assertEquals(1.0, related.get(0).getScore(), 1e-9);
+        assertEquals(3L, related.get(1).getBookId());
+        assertEquals(1, index.related(1, 1).size());
+        assertTrue(index.related(42, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("增量借阅只与读者最近借过的不同图书配对，重复借阅不重复计数")
+    public void testAddBorrowIncremental() {
+        // Arrange
+        CoBorrowingIndex.Matrix matrix = new CoBorrowingIndex.Matrix(2);
+
+        // Act
+        matrix.addBorrow(1, 10);
+        matrix.addBorrow(1, 20);
+        matrix.addBorrow(1, 20);
+        matrix.addBorrow(1, 30);
+        matrix.addBorrow(1, 40);
+
+        // Assert: 上限为 2，借 40 时只记得最近的 30 和 20
+        assertEquals(1, matrix.coBorrowers(10, 20));
+        assertEquals(1, matrix.coBorrowers(10, 30));
+        assertEquals(1, matrix.coBorrowers(40, 30));
+        assertEquals(1, matrix.coBorrowers(20, 40));
+        assertEquals(0, matrix.coBorrowers(10, 40));
+        assertEquals(1, matrix.readers(20));
+        assertEquals(1, matrix.userCount());
+    }
+
+    @Test
+    @DisplayName("合并分区结果等于整体构建结果")
+    public void testMergeEqualsSingleBuild() {
+        // Arrange
+        Random random = new Random(11);
+        CoBorrowingIndex.Matrix whole = new CoBorrowingIndex.Matrix(100);
+        CoBorrowingIndex.Matrix left = new CoBorrowingIndex.Matrix(100);
+        CoBorrowingIndex.Matrix right = new CoBorrowingIndex.Matrix(100);
+        for (long user = 1; user <= 200; user++) {
+            long[] books = random.longs(5, 1, 30).distinct().toArray();
+            whole.addUser(user, books);
+            (user % 2 == 0 ? left : right).addUser(user, books);
+        }
+
+        // Act
+        left.merge(right);
+
+        // Assert
+        assertEquals(whole.userCount(), left.userCount());
+        assertEquals(whole.bookCount(), left.bookCount());
+        for (long a = 1; a < 30; a++) {
+            assertEquals(whole.readers(a), left.readers(a));
+            for (long b = 1; b < 30; b++) {
+                assertEquals(whole.coBorrowers(a, b), left.coBorrowers(a, b));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("重建期间的借阅排队，装入后只重放快照之后的部分")
+    public void testPendingReplayAfterInstall() {
+        // Arrange
+        CoBorrowingIndex index = new CoBorrowingIndex();
+        assertFalse(index.isReady());
+        index.beginRebuild();
+        index.recordBorrow(1L, 1L, 5L);
+        index.recordBorrow(1L, 2L, 6L);
+        index.recordBorrow(1L, 3L, 7L);
+        CoBorrowingIndex.Matrix built = new CoBorrowingIndex.Matrix(100);
+        built.addUser(1, new long[] { 2, 1 });
+
+        // Act: 快照已包含到 borrowingId 6 为止的借阅
+        index.install(built, 6);
+
+        // Assert
+        assertTrue(index.isReady());
+        assertEquals(1, built.coBorrowers(1, 2));
+        assertEquals(1, built.coBorrowers(3, 1));
+        assertEquals(1, built.coBorrowers(3, 2));
+        assertEquals(1, built.readers(1));
+    }
+
+    @Test
+    @DisplayName("借阅事件在后台应用；放弃重建后排队的事件照常应用到旧矩阵")
+    public void testQueuedBorrowsAppliedInBackground() {
+        // Arrange
+        CoBorrowingIndex index = new CoBorrowingIndex();
+        index.beginRebuild();
+        index.install(new CoBorrowingIndex.Matrix(100), 0);
+        index.recordBorrow(1L, 1L, 1L);
+        index.recordBorrow(1L, 2L, 2L);
+        index.awaitUpdates();
+        assertEquals(1, index.related(1, 10).size());
+
+        // Act
+        index.beginRebuild();
+        index.recordBorrow(1L, 3L, 3L);
+        index.awaitUpdates();
+        assertEquals(1, index.related(1, 10).size());
+        index.abortRebuild();
+        index.awaitUpdates();
+
+        // Assert
+        assertEquals(2, index.related(1, 10).size());
+        assertEquals(2, index.related(3, 10).size());
+        index.shutdown();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@RecordApplicationEvents
+@DisplayName("应还日期索引测试")
+public class DueDateIndexTest {
+
+    @Autowired
+    private DueDateIndex dueDateIndex;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @MockBean
+    private BorrowingRepository borrowingRepository;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    public void setUp() {
+        now = LocalDateTime.now();
+        dueDateIndex.rebuild(Arrays.asList(
+                new Object[] {1L, 1L, 1L, now.minusDays(3)},
+                new Object[] {2L, 1L, 2L, now.plusMinutes(5)},
+                new Object[] {3L, 2L, 1L, now.plusDays(7)},
+                new Object[] {4L, 2L, 3L, now.minusHours(1)}), now);
+    }
+
+    @Test
+    @DisplayName("逾期查询为按应还日期排序的范围读取")
+    public void testOverdueIds() {
+        // Act
+        List<Long> overdue = dueDateIndex.overdueIds(now);
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 4L), overdue);
+        assertEquals(2L, dueDateIndex.overdueCount());
+        assertEquals(4, dueDateIndex.openLoanCount());
+    }
+
+    @Test
+    @DisplayName("借阅越过应还日期时发布逾期事件")
+    public void testAdvanceFiresEvent() {
+        // Act
+        dueDateIndex.advance(now.plusMinutes(10));
+
+        // Assert
+        List<Long> fired = applicationEvents.stream(LoanOverdueEvent.class)
+                .map(LoanOverdueEvent::getBorrowingId)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(2L), fired);
+        assertEquals(3L, dueDateIndex.overdueCount());
+
+        // 水位线不回退，重复推进不会重复发布
+        dueDateIndex.advance(now.plusMinutes(10));
+        assertEquals(1, applicationEvents.stream(LoanOverdueEvent.class).count());
+    }
+
+    @Test
+    @DisplayName("逾期列表按 borrowingId 游标分页")
+    public void testOverdueIdsAfter() {
+        // Arrange
+        dueDateIndex.rebuild(Arrays.asList(
+                new Object[] {9L, 1L, 1L, now.minusDays(3)},
+                new Object[] {3L, 1L, 2L, now.minusDays(1)},
+                new Object[] {7L, 2L, 1L, now.minusDays(5)},
+                new Object[] {5L, 2L, 3L, now.plusDays(1)}), now);
+
+        // Act & Assert
+        assertEquals(Arrays.asList(3L, 7L), dueDateIndex.overdueIdsAfter(now, 0L, 2));
+        assertEquals(Arrays.asList(9L), dueDateIndex.overdueIdsAfter(now, 7L, 2));
+        assertTrue(dueDateIndex.overdueIdsAfter(now, 9L, 2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("逾期列表分页包含刚越过应还日期的借阅，不含已归还的借阅")
+    public void testOverdueIdsAfterTracksChanges() {
+        // Act: 2 号在水位线之后到期，尚未推进水位线时按 now 计入；推进后进入逾期集合
+        List<Long> beforeAdvance = dueDateIndex.overdueIdsAfter(now.plusMinutes(10), 0L, 10);
+        dueDateIndex.advance(now.plusMinutes(10));
+        dueDateIndex.remove(1L);
+        List<Long> afterAdvance = dueDateIndex.overdueIdsAfter(now.plusMinutes(10), 0L, 10);
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L, 4L), beforeAdvance);
+        assertEquals(Arrays.asList(2L, 4L), afterAdvance);
+        assertEquals(Arrays.asList(4L), dueDateIndex.overdueIdsAfter(now, 0L, 10));
+        assertEquals(Arrays.asList(4L), dueDateIndex.overdueIdsAfter(now.plusMinutes(10), 2L, 10));
+    }
+
+    @Test
+    @DisplayName("重建不回退水位线，并保留快照之后新增的借阅")
+    public void testRebuildKeepsWatermarkAndRecentLoans() {
+        // Arrange: 读取快照之后本节点借出 8
+        long since = dueDateIndex.sequence();
+        Borrowing recent = new Borrowing();
+        recent.setBorrowingId(8L);
+        recent.setUserId(3L);
+        recent.setBookId(4L);
+        recent.setDueDate(now.plusMinutes(1));
+        dueDateIndex.add(recent);
+
+        // Act: 快照中没有 8；2 和 4 已在其他节点归还
+        dueDateIndex.rebuild(Arrays.asList(
+                new Object[] {1L, 1L, 1L, now.minusDays(3)},
+                new Object[] {3L, 2L, 1L, now.plusDays(7)}), now.plusMinutes(10), since);
+        dueDateIndex.advance(now.plusMinutes(10));
+
+        // Assert
+        assertEquals(3, dueDateIndex.openLoanCount());
+        List<Long> fired = applicationEvents.stream(LoanOverdueEvent.class)
+                .map(LoanOverdueEvent::getBorrowingId)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(8L), fired);
+        assertEquals(Arrays.asList(1L, 8L), dueDateIndex.overdueIds(now.plusMinutes(10)));
+    }
+
+    @Test
+    @DisplayName("归还和新增借阅时同步更新索引")
+    public void testAddAndRemove() {
+        // Arrange
+        Borrowing borrowing = new Borrowing();
+        borrowing.setBorrowingId(5L);
+        borrowing.setUserId(3L);
+        borrowing.setBookId(4L);
+        borrowing.setDueDate(now.plusDays(14));
+
+        // Act
+        dueDateIndex.add(borrowing);
+        dueDateIndex.remove(1L);
+
+        // Assert
+        assertEquals(4, dueDateIndex.openLoanCount());
+        assertEquals(1L, dueDateIndex.overdueCount());
+        assertEquals(Arrays.asList(4L), dueDateIndex.overdueIds(now));
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Idempotency-Key 测试")
+public class IdempotencyServiceTest {
+
+    private static final Long USER_ID = 11L;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private BorrowingService borrowingService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
+    private Book book;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    public void setUp() {
+        idempotencyRecordRepository.deleteAll();
+        borrowingRepository.deleteAll();
+        bookRepository.deleteAll();
+        Book newBook = new Book();
+        newBook.setTitle("Idempotent");
+        newBook.setAuthor("Retry");
+        newBook.setIsbn("978-0-00-000201-1");
+        newBook.setCategory("Test");
+        newBook.setStock(5);
+        book = bookRepository.save(newBook);
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("同一个键重发时返回第一次的响应，只借一次")
+    public void testReplayReturnsStoredResponse() {
+        // Act
+        ResponseEntity<?> first = idempotencyService.execute("borrow", "k-1", "user=11", this::borrow);
+        ResponseEntity<?> second = idempotencyService.execute("borrow", "k-1", "user=11", this::borrow);
+
+        // Assert
+        assertEquals(1, executions.get());
+        assertEquals(4, bookRepository.findById(book.getBookId()).orElseThrow().getStock());
+        assertEquals(1, borrowingRepository.count());
+        assertEquals(HttpStatus.OK, second.getStatusCode());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        Long borrowingId = ((Borrowing) first.getBody()).getBorrowingId();
+        assertTrue(((String) second.getBody()).contains("\"borrowingId\":" + borrowingId));
+    }
+
+    @Test
+    @DisplayName("内存缓存丢失（重启或其他节点）时从表中重放")
+    public void testReplayFromTable() {
+        // Arrange
+        idempotencyService.execute("borrow", "k-2", "user=11", this::borrow);
+        IdempotencyService otherNode = new IdempotencyService(idempotencyRecordRepository, objectMapper,
+                libraryMetrics, 100, 24, 60);
+
+        // Act
+        ResponseEntity<?> replay = otherNode.execute("borrow", "k-2", "user=11", this::borrow);
+
+        // Assert
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.OK, replay.getStatusCode());
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    @DisplayName("同一个键用于不同请求返回 422，不同接口的同名键互不影响")
+    public void testKeyReuseForDifferentRequest() {
+        // Arrange
+        idempotencyService.execute("borrow", "k-3", "user=11", this::borrow);
+
+        // Act
+        ResponseEntity<?> mismatch = idempotencyService.execute("borrow", "k-3", "user=12", this::borrow);
+        ResponseEntity<?> otherOperation = idempotencyService.execute("return", "k-3", "user=11", this::borrow);
+
+        // Assert
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, mismatch.getStatusCode());
+        assertEquals(HttpStatus.OK, otherOperation.getStatusCode());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    @DisplayName("第一次请求仍在执行时，同键请求返回 409")
+    public void testConcurrentDuplicateIsRejected() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = new Thread(() -> idempotencyService.execute("borrow", "k-4", "user=11", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return borrow();
+        }));
+        first.start();
+        started.await();
+
+        // Act
+        ResponseEntity<?> duplicate = idempotencyService.execute("borrow", "k-4", "user=11", this::borrow);
+        release.countDown();
+        first.join();
+        ResponseEntity<?> replay = idempotencyService.execute("borrow", "k-4", "user=11", this::borrow);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, duplicate.getStatusCode());
+        assertEquals(HttpStatus.OK, replay.getStatusCode());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("超时的占用只能被接管一次，被接管的原请求结束时不影响接管者")
+    public void testStaleClaimTakenOverOnce() {
+        // Arrange: 原请求两小时前占用后一直没有结束
+        LocalDateTime stale = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS);
+        idempotencyRecordRepository.claim("borrow:k-8", "original", stale);
+
+        // Act
+        ResponseEntity<?> first = idempotencyService.execute("borrow", "k-8", "user=11", this::borrow);
+        int lateTakeOver = idempotencyRecordRepository.takeOver("borrow:k-8", "other", stale, LocalDateTime.now());
+        int lateRelease = idempotencyRecordRepository.release("borrow:k-8", stale);
+        int lateComplete = idempotencyRecordRepository.complete("borrow:k-8", stale, 500, null, null, LocalDateTime.now());
+        ResponseEntity<?> replay = idempotencyService.execute("borrow", "k-8", "user=11", this::borrow);
+
+        // Assert
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals(0, lateTakeOver);
+        assertEquals(0, lateRelease);
+        assertEquals(0, lateComplete);
+        assertEquals(HttpStatus.OK, replay.getStatusCode());
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+        assertEquals(200, idempotencyRecordRepository.findById("borrow:k-8").orElseThrow().getStatusCode());
+    }
+
+    @Test
+    @DisplayName("执行失败（5xx 或异常）不保存结果，同一个键可以重试")
+    public void testFailureReleasesKey() {
+        // Arrange
+        Supplier<ResponseEntity<?>> failing = () -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("database unavailable");
+        };
+        assertThrows(IllegalStateException.class,
+                () -> idempotencyService.execute("borrow", "k-5", "user=11", failing));
+        idempotencyService.execute("borrow", "k-5", "user=11",
+                () -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+
+        // Act
+        ResponseEntity<?> retry = idempotencyService.execute("borrow", "k-5", "user=11", this::borrow);
+
+        // Assert
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertNull(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    @DisplayName("业务错误（4xx）的响应同样保存并重放")
+    public void testClientErrorIsReplayed() {
+        // Arrange
+        Supplier<ResponseEntity<?>> rejected = () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.badRequest().body("Book not available");
+        };
+
+        // Act
+        idempotencyService.execute("borrow", "k-6", "user=11", rejected);
+        ResponseEntity<?> replay = idempotencyService.execute("borrow", "k-6", "user=11", rejected);
+
+        // Assert
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.BAD_REQUEST, replay.getStatusCode());
+        assertEquals("Book not available", replay.getBody());
+    }
+
+    @Test
+    @DisplayName("没有 Idempotency-Key 时每次都执行")
+    public void testWithoutKey() {
+        idempotencyService.execute("borrow", null, "user=11", this::borrow);
+        idempotencyService.execute("borrow", null, "user=11", this::borrow);
+
+        assertEquals(2, executions.get());
+        assertEquals(0, idempotencyRecordRepository.count());
+    }
+
+    private ResponseEntity<?> borrow() {
+        executions.incrementAndGet();
+        return ResponseEntity.ok(borrowingService.borrowBook(USER_ID, book.getBookId()));
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = "library.statistics.query-timeout-ms=1000")
+@ActiveProfiles("h2")
+@DisplayName("统计计数器测试")
+public class LibraryStatisticsTest {
+
+    @Autowired
+    private LibraryStatistics libraryStatistics;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private BookRepository bookRepository;
+
+    @MockBean
+    private BorrowingRepository borrowingRepository;
+
+    @BeforeEach
+    public void setUp() {
+        when(userRepository.count()).thenReturn(10L);
+        when(bookRepository.count()).thenReturn(20L);
+        when(borrowingRepository.count()).thenReturn(30L);
+        when(borrowingRepository.countByReturnDateIsNull()).thenReturn(5L);
+        when(borrowingRepository.countByReturnDateIsNullAndDueDateBefore(any(LocalDateTime.class))).thenReturn(2L);
+        libraryStatistics.reconcile();
+        clearInvocations(userRepository, bookRepository, borrowingRepository);
+    }
+
+    @Test
+    @DisplayName("对账后快照与数据库计数一致")
+    public void testReconcile() {
+        // Act
+        Map<String, Object> stats = libraryStatistics.snapshot();
+
+        // Assert
+        assertEquals(10L, stats.get("totalUsers"));
+        assertEquals(20L, stats.get("totalBooks"));
+        assertEquals(30L, stats.get("totalBorrowings"));
+        assertEquals(5L, stats.get("activeBorrowings"));
+        assertEquals(2L, stats.get("overdueCount"));
+        assertNotNull(stats.get("reconciledAt"));
+    }
+
+    @Test
+    @DisplayName("读取快照不访问数据库")
+    public void testSnapshotDoesNotQuery() {
+        // Act
+        libraryStatistics.snapshot();
+
+        // Assert
+        verifyNoInteractions(userRepository, bookRepository, borrowingRepository);
+    }
+
+    @Test
+    @DisplayName("借书和还书事件增量更新计数")
+    public void testBorrowAndReturnEvents() {
+        // Act
+        libraryStatistics.bookBorrowed();
+        libraryStatistics.bookReturned();
+        libraryStatistics.bookBorrowed();
+        Map<String, Object> stats = libraryStatistics.snapshot();
+
+        // Assert: 逾期数只随对账更新
+        assertEquals(32L, stats.get("totalBorrowings"));
+        assertEquals(6L, stats.get("activeBorrowings"));
+        assertEquals(2L, stats.get("overdueCount"));
+    }
+
+    @Test
+    @DisplayName("注册和删除事件增量更新计数")
+    public void testUserAndBookEvents() {
+        // Act
+        libraryStatistics.userRegistered();
+        libraryStatistics.bookAdded();
+        libraryStatistics.bookAdded();
+        libraryStatistics.bookDeleted();
+        Map<String, Object> stats = libraryStatistics.snapshot();
+
+        // Assert
+        assertEquals(11L, stats.get("totalUsers"));
+        assertEquals(21L, stats.get("totalBooks"));
+    }
+
+    @Test
+    @DisplayName("对账查询并发执行，总耗时接近最慢的一条而不是总和")
+    public void testReconcileRunsQueriesConcurrently() {
+        // Arrange: 每条查询 300ms，串行需要 1.5s 以上
+        when(userRepository.count()).thenAnswer(invocation -> slow(300, 11L));
+        when(bookRepository.count()).thenAnswer(invocation -> slow(300, 21L));
+        when(borrowingRepository.count()).thenAnswer(invocation -> slow(300, 31L));
+        when(borrowingRepository.countByReturnDateIsNull()).thenAnswer(invocation -> slow(300, 6L));
+
+        // Act
+        long start = System.nanoTime();
+        Map<String, Object> stats = libraryStatistics.refresh();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert
+        assertTrue(elapsedMs < 1000, "reconcile took " + elapsedMs + " ms");
+        assertEquals(11L, stats.get("totalUsers"));
+        assertEquals(21L, stats.get("totalBooks"));
+        assertEquals(31L, stats.get("totalBorrowings"));
+        assertEquals(6L, stats.get("activeBorrowings"));
+        assertEquals(List.of(), stats.get("stale"));
+    }
+
+    @Test
+    @DisplayName("慢查询超时时返回部分结果并标记为 stale，完成后回填")
+    public void testSlowQueryReturnsPartialStaleResult() throws Exception {
+        // Arrange
+        when(bookRepository.count()).thenReturn(25L);
+        when(userRepository.count()).thenAnswer(invocation -> slow(2500, 99L));
+
+        // Act
+        long start = System.nanoTime();
+        Map<String, Object> stats = libraryStatistics.refresh();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert
+        assertTrue(elapsedMs < 2000, "reconcile blocked for " + elapsedMs + " ms");
+        assertEquals(10L, stats.get("totalUsers"));
+        assertEquals(25L, stats.get("totalBooks"));
+        assertEquals(List.of("totalUsers"), stats.get("stale"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!((List<?>) libraryStatistics.snapshot().get("stale")).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Map<String, Object> filled = libraryStatistics.snapshot();
+        assertEquals(99L, filled.get("totalUsers"));
+        assertEquals(List.of(), filled.get("stale"));
+    }
+
+    @Test
+    @DisplayName("上一轮对账的迟到结果不覆盖新一轮的值")
+    public void testLateResultFromOlderReconcileDropped() throws Exception {
+        // Arrange: 第一轮的用户计数超时，第二轮很快返回
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.count()).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return 99L;
+        }).thenReturn(12L);
+        libraryStatistics.refresh();
+
+        // Act
+        Map<String, Object> second = libraryStatistics.refresh();
+        release.countDown();
+        Thread.sleep(200);
+
+        // Assert
+        assertEquals(12L, second.get("totalUsers"));
+        Map<String, Object> stats = libraryStatistics.snapshot();
+        assertEquals(12L, stats.get("totalUsers"));
+        assertEquals(List.of(), stats.get("stale"));
+    }
+
+    private static long slow(long millis, long value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.librarymanagement.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("登录限流与 BCrypt 校验线程池测试")
+public class LoginThrottlingTest {
+
+    @Test
+    @DisplayName("同一用户名超过突发额度后被限流，其他用户名不受影响")
+    public void testUsernameBucket() {
+        // Arrange
+        LoginRateLimiter limiter = new LoginRateLimiter(3, 1, 100, 100);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("alice", "10.0.0." + i);
+        }
+        LoginThrottledException e = assertThrows(LoginThrottledException.class,
+                () -> limiter.acquire("ALICE", "10.0.0.9"));
+
+        // Assert
+        assertEquals(LoginRateLimiter.REASON_USERNAME, e.getReason());
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertDoesNotThrow(() -> limiter.acquire("bob", "10.0.0.9"));
+    }
+
+    @Test
+    @DisplayName("同一 IP 尝试不同用户名同样受限")
+    public void testIpBucket() {
+        // Arrange
+        LoginRateLimiter limiter = new LoginRateLimiter(100, 100, 5, 1);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("user" + i, "192.168.1.20");
+        }
+        LoginThrottledException e = assertThrows(LoginThrottledException.class,
+                () -> limiter.acquire("user99", "192.168.1.20"));
+
+        // Assert
+        assertEquals(LoginRateLimiter.REASON_IP, e.getReason());
+    }
+
+    @Test
+    @DisplayName("校验队列已满时立即拒绝，并暴露队列深度")
+    public void testPoolRejectsWhenQueueFull() throws Exception {
+        // Arrange: 1 个线程 + 容量 1 的队列
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PasswordVerificationPool pool = new PasswordVerificationPool(1, 1, 5000, registry);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> pool.verify(() -> {
+                running.countDown();
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    return false;
+                }
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> pool.verify(() -> true));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.queueDepth() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            // Act
+            LoginThrottledException e = assertThrows(LoginThrottledException.class, () -> pool.verify(() -> true));
+
+            // Assert
+            assertEquals(PasswordVerificationPool.REASON_QUEUE_FULL, e.getReason());
+            assertEquals(1.0, registry.get("library.login.verify.queue.depth").gauge().value());
+            release.countDown();
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertTrue(queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.librarymanagement.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BCrypt 成本标定测试")
+public class PasswordHasherTest {
+
+    @Test
+    @DisplayName("从哈希中解析成本")
+    public void testCostOf() {
+        assertEquals(4, PasswordHasher.costOf(BCrypt.hashpw("x", BCrypt.gensalt(4))));
+        assertEquals(10, PasswordHasher.costOf("$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy"));
+        assertEquals(-1, PasswordHasher.costOf("plain-text"));
+        assertEquals(-1, PasswordHasher.costOf(null));
+    }
+
+    @Test
+    @DisplayName("标定结果在上下限之内，固定成本优先")
+    public void testCalibrationBounds() {
+        // Act
+        int tiny = PasswordHasher.calibrate(1, 4, 6);
+        int huge = PasswordHasher.calibrate(60_000, 4, 6);
+        PasswordHasher fixed = new PasswordHasher(5, 250, 4, 14);
+
+        // Assert
+        assertTrue(tiny >= 4 && tiny <= 6);
+        assertEquals(6, huge);
+        assertEquals(5, fixed.targetCost());
+        assertEquals(5, PasswordHasher.costOf(fixed.hash("password")));
+        assertTrue(fixed.needsRehash(BCrypt.hashpw("password", BCrypt.gensalt(4))));
+        assertFalse(fixed.needsRehash(fixed.hash("password")));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.librarymanagement.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("热门图书 Top-K 统计测试")
+public class PopularBooksTrackerTest {
+
+    @Test
+    @DisplayName("偏斜分布下估计值在误差界内且 Top-K 与精确结果一致")
+    public void testSketchWithinErrorBound() {
+        // Arrange: 容量 50，1000 种图书，热门图书呈长尾分布
+        PopularBooksTracker tracker = new PopularBooksTracker(50);
+        tracker.rebuild(new ArrayList<>(), new ArrayList<>());
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        long total = 0;
+        for (int i = 0; i < 20000; i++) {
+            long bookId = random.nextDouble() < 0.5 ? random.nextInt(10) + 1 : random.nextInt(1000) + 1;
+            tracker.recordBorrow(bookId, now);
+            exact.merge(bookId, 1L, Long::sum);
+            total++;
+        }
+
+        // Act
+        List<PopularBooksTracker.Estimate> top = tracker.top(10, 0, now.toLocalDate());
+
+        // Assert
+        assertEquals(10, top.size());
+        for (PopularBooksTracker.Estimate estimate : top) {
+            long trueCount = exact.get(estimate.getBookId());
+            assertTrue(estimate.getCount() >= trueCount);
+            assertTrue(estimate.getCount() - trueCount <= estimate.getMaxError());
+            assertTrue(estimate.getMaxError() <= total / 50);
+            assertTrue(estimate.getBookId() <= 10, "热门图书应全部来自前 10 本");
+        }
+    }
+
+    @Test
+    @DisplayName("按天分桶的时间窗口只统计窗口内借阅")
+    public void testWindows() {
+        // Arrange
+        PopularBooksTracker tracker = new PopularBooksTracker(100);
+        LocalDate today = LocalDate.now();
+        List<Object[]> allTime = new ArrayList<>();
+        allTime.add(new Object[] {1L, 100L});
+        allTime.add(new Object[] {2L, 5L});
+        List<Object[]> recent = new ArrayList<>();
+        recent.add(new Object[] {1L, today.minusDays(20).atTime(10, 0)});
+        recent.add(new Object[] {2L, today.minusDays(1).atTime(10, 0)});
+        recent.add(new Object[] {2L, today.atTime(9, 0)});
+        tracker.rebuild(allTime, recent);
+
+        // Act
+        tracker.recordBorrow(3L, today.atTime(12, 0));
+        List<PopularBooksTracker.Estimate> allTop = tracker.top(10, 0, today);
+        List<PopularBooksTracker.Estimate> monthTop = tracker.top(10, 30, today);
+        List<PopularBooksTracker.Estimate> weekTop = tracker.top(10, 7, today);
+
+        // Assert
+        assertEquals(1L, allTop.get(0).getBookId());
+        assertEquals(100L, allTop.get(0).getCount());
+        assertEquals(3, monthTop.size());
+        assertEquals(2L, monthTop.get(0).getBookId());
+        assertEquals(2, weekTop.size());
+        assertTrue(weekTop.stream().noneMatch(e -> e.getBookId() == 1L));
+        assertEquals(0L, weekTop.get(0).getMaxError());
+    }
+
+    @Test
+    @DisplayName("用精确计数重建时只装入前 capacity 本，估计值无误差且与输入顺序无关")
+    public void testRebuildFromExactCountsHasNoError() {
+        // Arrange: 20 本书，次数 1..20，按升序输入（逐条喂入会让头部继承被逐出的计数）
+        PopularBooksTracker tracker = new PopularBooksTracker(5);
+        List<Object[]> allTime = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            allTime.add(new Object[] {id, id});
+        }
+
+        // Act
+        tracker.rebuild(allTime, new ArrayList<>());
+        List<PopularBooksTracker.Estimate> top = tracker.top(5, 0, LocalDate.now());
+
+        // Assert
+        assertEquals(5, top.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(20L - i, top.get(i).getBookId());
+            assertEquals(20L - i, top.get(i).getCount());
+            assertEquals(0L, top.get(i).getMaxError());
+        }
+    }
+
+    @Test
+    @DisplayName("窗口合并可能漏计，真实次数落在估计值 ± maxError 之内")
+    public void testWindowErrorIsTwoSided() {
+        // Arrange: 容量 2；前一天 3 没进入摘要，今天 3 最多
+        PopularBooksTracker tracker = new PopularBooksTracker(2);
+        LocalDate today = LocalDate.now();
+        List<Object[]> recent = new ArrayList<>();
+        Map<Long, Long> exact = new HashMap<>();
+        long[][] borrows = { {1, 3}, {2, 2}, {3, 1} };
+        for (long[] borrow : borrows) {
+            for (int i = 0; i < borrow[1]; i++) {
+                recent.add(new Object[] {borrow[0], today.minusDays(1).atTime(10, 0)});
+            }
+            exact.merge(borrow[0], borrow[1], Long::sum);
+        }
+        tracker.rebuild(new ArrayList<>(), recent);
+        for (int i = 0; i < 4; i++) {
+            tracker.recordBorrow(3L, today.atTime(10, 0));
+        }
+        exact.merge(3L, 4L, Long::sum);
+
+        // Act
+        List<PopularBooksTracker.Estimate> week = tracker.top(10, 7, today);
+
+        // Assert
+        PopularBooksTracker.Estimate third = week.stream().filter(e -> e.getBookId() == 3L).findFirst().orElseThrow();
+        assertTrue(third.getCount() < exact.get(3L), "前一天的借阅被漏计");
+        for (PopularBooksTracker.Estimate estimate : week) {
+            assertTrue(Math.abs(estimate.getCount() - exact.get(estimate.getBookId())) <= estimate.getMaxError());
+        }
+    }
+}
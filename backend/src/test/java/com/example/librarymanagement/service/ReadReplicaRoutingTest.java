@@ -0,0 +1,178 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.config.ReadWriteRoutingDataSource;
+import com.example.librarymanagement.config.ReplicaReads;
+import com.example.librarymanagement.config.SchemaMigrator;
+import com.example.librarymanagement.dto.BorrowingView;
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.entity.User;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 两个内存 H2 分别充当主库和只读副本，通过各自独有的数据判断查询落在哪个库。
+ */
+@SpringBootTest(properties = {
+        "library.datasource.replica.jdbc-url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "library.datasource.replica.username=sa",
+        "library.datasource.replica.password="
+})
+@ActiveProfiles("h2")
+@DisplayName("读写分离路由测试")
+public class ReadReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final long REPLICA_BOOK_ID = 900_000L;
+
+    @Autowired
+    private BorrowingService borrowingService;
+
+    @Autowired
+    private BorrowingExportService borrowingExportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private ReplicaReads replicaReads;
+
+    private JdbcTemplate replica;
+    private Long primaryUserId;
+    private Long primaryBookId;
+
+    @BeforeEach
+    public void setUp() {
+        // 副本库用迁移脚本建表，并写入只存在于副本的借阅
+        DriverManagerDataSource replicaAdmin = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        new SchemaMigrator(replicaAdmin, "classpath:db/migration").migrate();
+        replica = new JdbcTemplate(replicaAdmin);
+        replica.update("DELETE FROM borrowings");
+        replica.update("DELETE FROM users");
+        replica.update("DELETE FROM books WHERE book_id = ?", REPLICA_BOOK_ID);
+        replica.update("INSERT INTO books (book_id, title, stock) VALUES (?, 'Replica Only', 5)", REPLICA_BOOK_ID);
+        replica.update("INSERT INTO users (user_id, username, password) VALUES (900, 'replica-reader', 'x')");
+        replica.update("INSERT INTO borrowings (user_id, book_id, borrow_date, due_date) "
+                + "SELECT 900, MIN(book_id), NOW(), NOW() FROM books");
+
+        borrowingRepository.deleteAll();
+        bookRepository.deleteAll();
+        User reader = userRepository.findByUsername("primary-reader");
+        if (reader == null) {
+            reader = new User();
+            reader.setUsername("primary-reader");
+            reader.setPassword("x");
+            reader.setRole(User.Role.STUDENT);
+            reader = userRepository.save(reader);
+        }
+        primaryUserId = reader.getUserId();
+        Book book = new Book();
+        book.setTitle("Primary Only");
+        book.setAuthor("Robert C. Martin");
+        book.setCategory("Programming");
+        book.setIsbn("978-0-13-235088-4");
+        book.setStock(3);
+        book = bookRepository.save(book);
+        primaryBookId = book.getBookId();
+        Borrowing borrowing = new Borrowing();
+        borrowing.setUserId(primaryUserId);
+        borrowing.setBookId(book.getBookId());
+        borrowing.setBorrowDate(LocalDateTime.now());
+        borrowing.setDueDate(LocalDateTime.now().plusDays(14));
+        borrowingRepository.save(borrowing);
+    }
+
+    @Test
+    @DisplayName("只读报表查询路由到副本")
+    public void testReportsReadReplica() throws Exception {
+        // Act
+        List<Map<String, Object>> stats = borrowingService.getUserBorrowingStats();
+        List<BorrowingView> page = borrowingService.getBorrowingsPage(0L, 10);
+        long exported = borrowingExportService.export(new ByteArrayOutputStream(),
+                BorrowingExportService.Format.CSV, null, null);
+
+        // Assert
+        assertEquals(1, stats.size());
+        assertEquals("replica-reader", stats.get(0).get("username"));
+        assertEquals(1, page.size());
+        assertEquals(900L, page.get(0).getUserId());
+        assertEquals(1, exported);
+    }
+
+    @Test
+    @DisplayName("写操作和用户自己的借阅历史留在主库")
+    public void testWritesAndOwnHistoryUsePrimary() {
+        // Act
+        borrowingService.borrowBook(primaryUserId, primaryBookId);
+        List<BorrowingView> history = borrowingService.getBorrowingViewsByUser(primaryUserId);
+
+        // Assert
+        assertEquals(2, history.size());
+        assertEquals("primary-reader", history.get(0).getUsername());
+        assertEquals(0, replica.queryForObject(
+                "SELECT COUNT(*) FROM borrowings WHERE user_id = ?", Integer.class, primaryUserId));
+    }
+
+    @Test
+    @DisplayName("仓库自带只读事务的增删改查不带标记，留在主库")
+    public void testRepositoryReadsUsePrimary() {
+        // Act
+        List<Book> books = bookRepository.findAll();
+
+        // Assert
+        assertEquals(1, books.size());
+        assertEquals(primaryBookId, books.get(0).getBookId());
+        assertEquals(1, bookRepository.count());
+        assertTrue(bookRepository.findById(REPLICA_BOOK_ID).isEmpty());
+        assertTrue(bookRepository.findById(primaryBookId).isPresent());
+        assertTrue(userRepository.findById(900L).isEmpty());
+        assertEquals(1, borrowingRepository.count());
+    }
+
+    @Test
+    @DisplayName("副本不可用时只读查询回退主库")
+    public void testFallbackToPrimary() {
+        // Arrange
+        DriverManagerDataSource primary = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing_fallback;DB_CLOSE_DELAY=-1", "sa", "");
+        DriverManagerDataSource unreachable = new DriverManagerDataSource(
+                "jdbc:h2:tcp://127.0.0.1:1/unreachable", "sa", "");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, unreachable, 60_000);
+
+        // Act
+        String url = replicaReads.execute(() -> {
+            try (Connection connection = routing.getConnection()) {
+                return connection.getMetaData().getURL();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Assert
+        assertTrue(url.contains("routing_fallback"));
+    }
+}
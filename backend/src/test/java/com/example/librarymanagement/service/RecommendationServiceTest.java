@@ -0,0 +1,150 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.BorrowingHistory;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingHistoryRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("相关图书推荐测试")
+public class RecommendationServiceTest {
+
+    private static final int USERS = 40;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private CoBorrowingIndex coBorrowingIndex;
+
+    @Autowired
+    private BorrowingService borrowingService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowingRepository borrowingRepository;
+
+    @Autowired
+    private BorrowingHistoryRepository borrowingHistoryRepository;
+
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        borrowingRepository.deleteAll();
+        borrowingHistoryRepository.deleteAll();
+        bookRepository.deleteAll();
+        books.clear();
+        for (int i = 0; i < 8; i++) {
+            Book book = new Book();
+            book.setTitle("Related " + i);
+            book.setAuthor("Author " + i);
+            book.setIsbn("978-0-00-000" + (200 + i) + "-0");
+            book.setCategory("Test");
+            book.setStock(1000);
+            books.add(bookRepository.save(book));
+        }
+    }
+
+    @Test
+    @DisplayName("分区并行构建的共现计数与逐个读者暴力统计一致，并合并归档记录")
+    public void testParallelBuildMatchesBruteForce() {
+        // Arrange: 一半借阅进入归档表
+        Random random = new Random(3);
+        List<Set<Long>> borrowedByUser = new ArrayList<>();
+        long historyId = 1_000_000L;
+        for (long user = 1; user <= USERS; user++) {
+            Set<Long> borrowed = new HashSet<>();
+            for (int i = 0; i < 4; i++) {
+                Long bookId = books.get(random.nextInt(books.size())).getBookId();
+                borrowed.add(bookId);
+                if (i % 2 == 0) {
+                    borrowingService.borrowBook(user, bookId);
+                } else {
+                    archive(++historyId, user, bookId);
+                }
+            }
+            borrowedByUser.add(borrowed);
+        }
+
+        // Act
+        int readers = recommendationService.rebuild();
+
+        // Assert
+        assertEquals(USERS, readers);
+        Long target = books.get(0).getBookId();
+        List<CoBorrowingIndex.Related> related = coBorrowingIndex.related(target, 10);
+        for (CoBorrowingIndex.Related candidate : related) {
+            long expected = borrowedByUser.stream()
+                    .filter(set -> set.contains(target) && set.contains(candidate.getBookId()))
+                    .count();
+            assertEquals(expected, candidate.getCoBorrowers());
+        }
+        long expectedCandidates = books.stream()
+                .map(Book::getBookId)
+                .filter(id -> !id.equals(target))
+                .filter(id -> borrowedByUser.stream().anyMatch(set -> set.contains(target) && set.contains(id)))
+                .count();
+        assertEquals(expectedCandidates, related.size());
+        for (int i = 1; i < related.size(); i++) {
+            assertTrue(related.get(i - 1).getScore() >= related.get(i).getScore());
+        }
+    }
+
+    @Test
+    @DisplayName("新借阅在后台增量更新推荐结果")
+    public void testBorrowUpdatesIncrementally() {
+        // Arrange
+        Long first = books.get(0).getBookId();
+        Long second = books.get(1).getBookId();
+        borrowingService.borrowBook(1L, first);
+        recommendationService.rebuild();
+        assertTrue(recommendationService.getRelatedBooks(first, 10).isEmpty());
+
+        // Act
+        borrowingService.borrowBook(1L, second);
+        borrowingService.borrowBook(2L, second);
+        borrowingService.borrowBook(2L, first);
+        coBorrowingIndex.awaitUpdates();
+
+        // Assert
+        List<Map<String, Object>> related = recommendationService.getRelatedBooks(first, 10);
+        assertEquals(1, related.size());
+        assertEquals(second, related.get(0).get("bookId"));
+        assertEquals("Related 1", related.get(0).get("title"));
+        assertEquals(2, related.get(0).get("coBorrowers"));
+    }
+
+    private void archive(long borrowingId, long userId, Long bookId) {
+        LocalDateTime borrowDate = LocalDateTime.now().minusDays(400 + borrowingId % 30);
+        BorrowingHistory history = new BorrowingHistory();
+        history.setBorrowingId(borrowingId);
+        history.setUserId(userId);
+        history.setBookId(bookId);
+        history.setBorrowDate(borrowDate);
+        history.setDueDate(borrowDate.plusDays(14));
+        history.setReturnDate(borrowDate.plusDays(7));
+        history.setArchivedAt(LocalDateTime.now());
+        borrowingHistoryRepository.save(history);
+    }
+}
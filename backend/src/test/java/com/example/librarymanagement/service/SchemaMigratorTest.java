@@ -0,0 +1,94 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.config.SchemaMigrator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("版本化迁移测试")
+public class SchemaMigratorTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private SchemaMigrator migrator;
+
+    @BeforeEach
+    public void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:migration_" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        migrator = new SchemaMigrator(dataSource, "classpath:db/migration");
+    }
+
+    @Test
+    @DisplayName("空库执行全部迁移并记录版本，含复合索引")
+    public void testFreshDatabase() throws Exception {
+        // Act
+        int applied = migrator.migrate();
+
+        // Assert
+        int scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*__*.sql").length;
+        assertTrue(scripts >= 3);
+        assertEquals(scripts, applied);
+        List<Integer> versions = jdbc.queryForList("SELECT version FROM schema_version ORDER BY version", Integer.class);
+        assertEquals(scripts, versions.size());
+        assertEquals(List.of(1, 2, 3), versions.subList(0, 3));
+        assertEquals(5, jdbc.queryForObject("SELECT COUNT(*) FROM books", Integer.class));
+        List<String> indexes = jdbc.queryForList(
+                "SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES WHERE LOWER(TABLE_NAME) = 'borrowings'", String.class);
+        assertTrue(indexes.contains("idx_borrowings_return_due"));
+        assertTrue(indexes.contains("idx_borrowings_user_borrow"));
+    }
+
+    @Test
+    @DisplayName("重启只执行待定迁移，不清空已有数据")
+    public void testRestartIsNonDestructive() {
+        // Arrange
+        migrator.migrate();
+        jdbc.update("INSERT INTO users (username, password) VALUES ('keeper', 'x')");
+
+        // Act
+        int applied = migrator.migrate();
+
+        // Assert
+        assertEquals(0, applied);
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE username = 'keeper'", Integer.class));
+        assertEquals(5, jdbc.queryForObject("SELECT COUNT(*) FROM books", Integer.class));
+    }
+
+    @Test
+    @DisplayName("旧 schema.sql 建好的库直接纳入版本管理")
+    public void testAdoptsExistingSchema() {
+        // Arrange
+        jdbc.execute("CREATE TABLE books (book_id BIGINT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255) NOT NULL, "
+                + "author VARCHAR(100), isbn VARCHAR(20) UNIQUE, category VARCHAR(100), stock INT DEFAULT 0, "
+                + "location VARCHAR(100), created_at DATETIME, updated_at DATETIME)");
+        jdbc.update("INSERT INTO books (title, isbn, stock) VALUES ('设计模式', '978-0-201-63361-0', 9)");
+
+        // Act
+        migrator.migrate();
+
+        // Assert
+        assertEquals(5, jdbc.queryForObject("SELECT COUNT(*) FROM books", Integer.class));
+        assertEquals(9, jdbc.queryForObject("SELECT stock FROM books WHERE isbn = '978-0-201-63361-0'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("已执行的迁移被修改时拒绝启动")
+    public void testChecksumMismatch() {
+        // Arrange
+        migrator.migrate();
+        jdbc.update("UPDATE schema_version SET checksum = 'changed' WHERE version = 1");
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> migrator.migrate());
+    }
+}
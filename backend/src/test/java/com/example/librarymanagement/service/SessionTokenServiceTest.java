@@ -0,0 +1,55 @@
+package com.example.librarymanagement.service;
+
+import com.example.librarymanagement.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("会话令牌测试")
+public class SessionTokenServiceTest {
+
+    private final SessionTokenService tokens = new SessionTokenService("test-secret", 60);
+
+    @Test
+    @DisplayName("签发的令牌可以校验并还原 userId 和角色")
+    public void testIssueAndVerify() {
+        // Arrange
+        User user = new User();
+        user.setUserId(42L);
+        user.setRole(User.Role.TEACHER);
+
+        // Act
+        SessionPrincipal principal = tokens.verify(tokens.issue(user));
+
+        // Assert
+        assertNotNull(principal);
+        assertEquals(42L, principal.getUserId());
+        assertEquals(User.Role.TEACHER, principal.getRole());
+        assertTrue(principal.canAccess(42L));
+        assertFalse(principal.canAccess(7L));
+    }
+
+    @Test
+    @DisplayName("篡改、过期或其他密钥签发的令牌校验失败")
+    public void testRejectsInvalidTokens() {
+        // Arrange
+        String valid = tokens.issue(1L, User.Role.STUDENT, Instant.now().plusSeconds(60));
+        String forgedPayload = tokens.issue(1L, User.Role.ADMIN, Instant.now().plusSeconds(60)).split("\\.")[0];
+        String tampered = forgedPayload + "." + valid.split("\\.")[1];
+        String expired = tokens.issue(1L, User.Role.STUDENT, Instant.now().minusSeconds(1));
+        String otherKey = new SessionTokenService("other-secret", 60)
+                .issue(1L, User.Role.STUDENT, Instant.now().plusSeconds(60));
+
+        // Act & Assert
+        assertNotNull(tokens.verify(valid));
+        assertNull(tokens.verify(tampered));
+        assertNull(tokens.verify(expired));
+        assertNull(tokens.verify(otherKey));
+        assertNull(tokens.verify("dummy-token"));
+        assertNull(tokens.verify("%%%.###"));
+        assertNull(tokens.verify(null));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.librarymanagement.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("相同读请求合并测试")
+public class SingleFlightTest {
+
+    private static final int CALLERS = 50;
+
+    private SimpleMeterRegistry registry;
+    private SingleFlight singleFlight;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(new LibraryMetrics(registry), true);
+    }
+
+    @Test
+    @DisplayName("并发的相同调用只执行一次并共享结果")
+    public void testConcurrentIdenticalCallsShareOneExecution() throws Exception {
+        // Arrange
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        // Act
+        Future<List<String>> leader = executor.submit(() -> singleFlight.execute("search", "java", () -> {
+            executions.incrementAndGet();
+            leaderStarted.countDown();
+            await(release);
+            return List.of("Java核心技术");
+        }));
+        leaderStarted.await();
+        List<Future<List<String>>> followers = new ArrayList<>();
+        for (int i = 0; i < CALLERS - 1; i++) {
+            followers.add(executor.submit(() -> singleFlight.execute("search", "java", () -> {
+                executions.incrementAndGet();
+                return List.of("unexpected");
+            })));
+        }
+        while (collapsed("search") < CALLERS - 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        // Assert
+        List<String> result = leader.get(10, TimeUnit.SECONDS);
+        for (Future<List<String>> follower : followers) {
+            assertSame(result, follower.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1.0, registry.get(LibraryMetrics.SINGLE_FLIGHT_CALLS)
+                .tag("operation", "search").tag("role", "leader").counter().count());
+        assertEquals(0, singleFlight.inFlightCount());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("不同的键互不合并；完成后的调用重新执行，不缓存结果")
+    public void testDistinctKeysAndNoCaching() {
+        // Arrange
+        AtomicInteger executions = new AtomicInteger();
+
+        // Act
+        singleFlight.execute("search", "java", executions::incrementAndGet);
+        singleFlight.execute("search", "python", executions::incrementAndGet);
+        singleFlight.execute("popular_books", "java", executions::incrementAndGet);
+        singleFlight.execute("search", "java", executions::incrementAndGet);
+
+        // Assert
+        assertEquals(4, executions.get());
+        assertEquals(0.0, collapsed("search"));
+    }
+
+    @Test
+    @DisplayName("执行失败时等待中的调用收到同一个异常，之后的调用重新执行")
+    public void testFailureIsSharedThenRetried() throws Exception {
+        // Arrange
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("user_borrowing_stats", null, () -> {
+            leaderStarted.countDown();
+            await(release);
+            throw new IllegalStateException("replica down");
+        }));
+        leaderStarted.await();
+        Future<Object> follower = executor.submit(() -> singleFlight.execute("user_borrowing_stats", null, () -> "unexpected"));
+        while (collapsed("user_borrowing_stats") < 1) {
+            Thread.sleep(5);
+        }
+
+        // Act
+        release.countDown();
+
+        // Assert
+        Exception leaderError = assertThrows(Exception.class, () -> leader.get(10, TimeUnit.SECONDS));
+        Exception followerError = assertThrows(Exception.class, () -> follower.get(10, TimeUnit.SECONDS));
+        assertSame(leaderError.getCause(), followerError.getCause());
+        assertEquals("ok", singleFlight.execute("user_borrowing_stats", null, () -> "ok"));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("关闭时每次调用都直接执行")
+    public void testDisabled() {
+        SingleFlight disabled = new SingleFlight(new LibraryMetrics(registry), false);
+        AtomicInteger executions = new AtomicInteger();
+
+        disabled.execute("search", "java", executions::incrementAndGet);
+        disabled.execute("search", "java", executions::incrementAndGet);
+
+        assertEquals(2, executions.get());
+        assertTrue(registry.find(LibraryMetrics.SINGLE_FLIGHT_CALLS).counters().isEmpty());
+    }
+
+    private double collapsed(String operation) {
+        var counter = registry.find(LibraryMetrics.SINGLE_FLIGHT_CALLS)
+                .tag("operation", operation).tag("role", "collapsed").counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
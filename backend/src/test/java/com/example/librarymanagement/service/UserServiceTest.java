@@ -8,7 +8,10 @@ import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
 import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -17,6 +20,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -29,10 +33,20 @@ public class UserServiceTest {
     @MockBean
     private UserRepository userRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private LibraryStatistics libraryStatistics;
+
     private User testUser;
 
     @BeforeEach
     public void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
         testUser = new User();
         testUser.setUserId(1L);
         testUser.setUsername("testuser");
@@ -147,6 +161,37 @@ public class UserServiceTest {
         assertNotNull(registeredUser.getPassword());
         assertNotEquals(plainPassword, registeredUser.getPassword());
         assertTrue(BCrypt.checkpw(plainPassword, registeredUser.getPassword()));
+        assertEquals(passwordHasher.targetCost(), PasswordHasher.costOf(registeredUser.getPassword()));
+    }
+
+    @Test
+    @DisplayName("登录成功后按标定成本重新哈希旧密码")
+    public void testRehashIfNeeded() {
+        // Arrange: 以不同于目标的成本生成旧哈希
+        int oldCost = passwordHasher.targetCost() == 4 ? 5 : 4;
+        testUser.setPassword(BCrypt.hashpw("password123", BCrypt.gensalt(oldCost)));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        User rehashed = userService.rehashIfNeeded(testUser, "password123");
+
+        // Assert
+        assertEquals(passwordHasher.targetCost(), PasswordHasher.costOf(rehashed.getPassword()));
+        assertTrue(BCrypt.checkpw("password123", rehashed.getPassword()));
+        verify(userRepository, times(1)).save(testUser);
+    }
+
+    @Test
+    @DisplayName("成本已符合目标时不重新哈希")
+    public void testRehashNotNeeded() {
+        // Arrange
+        testUser.setPassword(passwordHasher.hash("password123"));
+
+        // Act
+        userService.rehashIfNeeded(testUser, "password123");
+
+        // Assert
+        verify(userRepository, never()).save(any(User.class));
     }
 
     // ============ 查找用户测试 ============
@@ -180,6 +225,37 @@ public class UserServiceTest {
         verify(userRepository, times(1)).findByUsername("nonexistent");
     }
 
+    @Test
+    @DisplayName("按用户名查找命中缓存，保存后失效")
+    public void testFindByUsernameCached() {
+        // Arrange
+        when(userRepository.findByUsername("testuser")).thenReturn(testUser);
+        when(userRepository.save(testUser)).thenReturn(testUser);
+
+        // Act
+        userService.findByUsername("testuser");
+        userService.findByUsername("testuser");
+        userService.save(testUser);
+        userService.findByUsername("testuser");
+
+        // Assert
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    @DisplayName("查找不存在的用户名不缓存空结果")
+    public void testFindByUsernameMissNotCached() {
+        // Arrange
+        when(userRepository.findByUsername("newcomer")).thenReturn(null);
+
+        // Act
+        userService.findByUsername("newcomer");
+        userService.findByUsername("newcomer");
+
+        // Assert
+        verify(userRepository, times(2)).findByUsername("newcomer");
+    }
+
     @Test
     @DisplayName("按ID查找用户成功")
     public void testFindByIdSuccess() {
@@ -276,13 +352,31 @@ public class UserServiceTest {
     @DisplayName("删除用户成功")
     public void testDeleteUserSuccess() {
         // Arrange
-        doNothing().when(userRepository).deleteById(1L);
+        when(userRepository.deleteUserById(1L)).thenReturn(1);
+        libraryStatistics.userRegistered();
+        Object before = libraryStatistics.snapshot().get("totalUsers");
 
         // Act
         userService.delete(1L);
 
         // Assert
-        verify(userRepository, times(1)).deleteById(1L);
+        verify(userRepository, times(1)).deleteUserById(1L);
+        assertEquals((Long) before - 1, libraryStatistics.snapshot().get("totalUsers"));
+    }
+
+    @Test
+    @DisplayName("删除不存在的用户不改变统计")
+    public void testDeleteUserNotFound() {
+        // Arrange
+        when(userRepository.deleteUserById(999L)).thenReturn(0);
+        Object before = libraryStatistics.snapshot().get("totalUsers");
+
+        // Act
+        userService.delete(999L);
+
+        // Assert
+        verify(userRepository, times(1)).deleteUserById(999L);
+        assertEquals(before, libraryStatistics.snapshot().get("totalUsers"));
     }
 
     @Test
@@ -304,6 +398,24 @@ public class UserServiceTest {
         verify(userRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("按主键游标分页查询用户")
+    public void testFindPage() {
+        // Arrange
+        User user2 = new User();
+        user2.setUserId(2L);
+        when(userRepository.findByUserIdGreaterThanOrderByUserIdAsc(eq(1L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(user2));
+
+        // Act
+        List<User> page = userService.findPage(1L, 51);
+
+        // Assert
+        assertEquals(1, page.size());
+        verify(userRepository, times(1)).findByUserIdGreaterThanOrderByUserIdAsc(1L, PageRequest.of(0, 51));
+        verify(userRepository, never()).findAll();
+    }
+
     @Test
     @DisplayName("获取用户总数")
     public void testGetTotalUsers() {
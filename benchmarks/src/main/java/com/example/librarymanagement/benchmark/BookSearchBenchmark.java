@@ -0,0 +1,59 @@
+package com.example.librarymanagement.benchmark;
+
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookService.searchBooks：选择性高 / 低的关键字在不同馆藏规模下的延迟
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookSearchBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int books;
+
+    @Param({"Java", "第42版", "Author 7"})
+    public String keyword;
+
+    private EmbeddedLibrary library;
+    private BookService bookService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        library = EmbeddedLibrary.start();
+        library.seedBooks(books, 5);
+        bookService = library.bean(BookService.class);
+        bookService.rebuildSearchIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        library.close();
+    }
+
+    @Benchmark
+    public List<Book> searchBooks() {
+        return bookService.searchBooks(keyword);
+    }
+}
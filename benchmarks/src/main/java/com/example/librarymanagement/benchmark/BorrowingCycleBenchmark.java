@@ -0,0 +1,113 @@
+package com.example.librarymanagement.benchmark;
+
+import com.example.librarymanagement.entity.Borrowing;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.service.BorrowingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BorrowingService 借还闭环：按时归还与逾期归还（含罚款计算），借阅表规模可调
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BorrowingCycleBenchmark {
+
+    private static final int BOOKS = 1000;
+
+    @Param({"1000", "10000", "50000"})
+    public int existingLoans;
+
+    private EmbeddedLibrary library;
+    private BorrowingService borrowingService;
+    private BorrowingRepository borrowingRepository;
+    private List<Long> bookIds;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        library = EmbeddedLibrary.start();
+        bookIds = library.seedBooks(BOOKS, Integer.MAX_VALUE / 2);
+        userId = library.seedUser("bench-borrower");
+        borrowingService = library.bean(BorrowingService.class);
+        borrowingRepository = library.bean(BorrowingRepository.class);
+
+        // 历史借阅：一半已归还，一半在借
+        LocalDateTime now = LocalDateTime.now();
+        List<Borrowing> batch = new ArrayList<>();
+        for (int i = 0; i < existingLoans; i++) {
+            Borrowing borrowing = new Borrowing();
+            borrowing.setUserId(userId);
+            borrowing.setBookId(bookIds.get(i % BOOKS));
+            borrowing.setBorrowDate(now.minusDays(i % 60));
+            borrowing.setDueDate(now.minusDays(i % 60).plusDays(14));
+            if (i % 2 == 0) {
+                borrowing.setReturnDate(now.minusDays(i % 60).plusDays(7));
+            }
+            batch.add(borrowing);
+            if (batch.size() == 1000) {
+                borrowingRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        borrowingRepository.saveAll(batch);
+        borrowingService.rebuildDueDateIndex();
+        borrowingService.rebuildPopularBooksTracker();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        library.close();
+    }
+
+    private Long randomBook() {
+        return bookIds.get(ThreadLocalRandom.current().nextInt(bookIds.size()));
+    }
+
+    @Benchmark
+    public Borrowing borrowAndReturn() {
+        Borrowing borrowing = borrowingService.borrowBook(userId, randomBook());
+        return borrowingService.returnBook(borrowing.getBorrowingId());
+    }
+
+    @Benchmark
+    public Borrowing returnOverdue(OverdueLoan loan) {
+        return borrowingService.returnBook(loan.borrowingId);
+    }
+
+    /**
+     * 每次调用前准备一条已逾期的在借记录，让 returnBook 走罚款分支
+     */
+    @State(Scope.Thread)
+    public static class OverdueLoan {
+        Long borrowingId;
+
+        @Setup(Level.Invocation)
+        public void prepare(BorrowingCycleBenchmark benchmark) {
+            Borrowing borrowing = benchmark.borrowingService.borrowBook(benchmark.userId, benchmark.randomBook());
+            borrowing.setDueDate(LocalDateTime.now().minusDays(ThreadLocalRandom.current().nextInt(1, 90)));
+            borrowingId = benchmark.borrowingRepository.save(borrowing).getBorrowingId();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.librarymanagement.benchmark;
+
+import com.example.librarymanagement.LibraryManagementApplication;
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.User;
+import com.example.librarymanagement.repository.BookRepository;
+import com.example.librarymanagement.repository.BorrowingRepository;
+import com.example.librarymanagement.repository.UserRepository;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试共用的嵌入式应用：H2 内存库 + 完整 Spring 上下文，按规模批量灌入测试数据。
+ */
+public final class EmbeddedLibrary implements AutoCloseable {
+
+    private static final String[] TITLE_WORDS = {
+            "Java", "Spring", "数据库", "算法", "网络", "操作系统", "编译原理", "设计模式",
+            "Python", "分布式", "机器学习", "Linux", "并发", "架构", "测试", "安全"
+    };
+
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedLibrary(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    public static EmbeddedLibrary start(String... args) {
+        SpringApplication application = new SpringApplication(LibraryManagementApplication.class);
+        application.setAdditionalProfiles("benchmark");
+        return new EmbeddedLibrary(application.run(args));
+    }
+
+    /**
+     * 以 servlet 模式启动时 Tomcat 实际监听的端口
+     */
+    public int port() {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * 写入 count 本图书（书名由固定词表组合生成），返回图书ID
+     */
+    public List<Long> seedBooks(int count, int stock) {
+        BookRepository bookRepository = bean(BookRepository.class);
+        List<Book> batch = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setTitle(TITLE_WORDS[i % TITLE_WORDS.length] + " "
+                    + TITLE_WORDS[(i / TITLE_WORDS.length) % TITLE_WORDS.length] + " 第" + i + "版");
+            book.setAuthor("Author " + (i % 997));
+            book.setIsbn(String.format("978-7-%09d", i));
+            book.setCategory("Benchmark");
+            book.setStock(stock);
+            batch.add(book);
+            if (batch.size() == 1000) {
+                bookRepository.saveAll(batch).forEach(b -> ids.add(b.getBookId()));
+                batch.clear();
+            }
+        }
+        bookRepository.saveAll(batch).forEach(b -> ids.add(b.getBookId()));
+        return ids;
+    }
+
+    public Long seedUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("benchmark");
+        user.setRole(User.Role.STUDENT);
+        return bean(UserRepository.class).save(user).getUserId();
+    }
+
+    public void clear() {
+        bean(BorrowingRepository.class).deleteAllInBatch();
+        bean(BookRepository.class).deleteAllInBatch();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.librarymanagement.benchmark;
+
+import com.example.librarymanagement.service.BorrowingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * returnBook 中的罚款计算本身（不含数据库），按逾期天数分档
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FineCalculationBenchmark {
+
+    @Param({"0", "1", "30", "365"})
+    public int daysOverdue;
+
+    private LocalDateTime dueDate;
+    private LocalDateTime returnDate;
+
+    @Setup
+    public void setUp() {
+        returnDate = LocalDateTime.now();
+        dueDate = daysOverdue == 0 ? returnDate.plusDays(1) : returnDate.minusDays(daysOverdue);
+    }
+
+    @Benchmark
+    public BigDecimal calculateFine() {
+        return BorrowingService.calculateFine(dueDate, returnDate);
+    }
+}
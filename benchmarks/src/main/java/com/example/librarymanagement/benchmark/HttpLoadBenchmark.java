@@ -0,0 +1,177 @@
+package com.example.librarymanagement.benchmark;
+
+import com.example.librarymanagement.entity.User;
+import com.example.librarymanagement.repository.UserRepository;
+import com.example.librarymanagement.service.BookService;
+import com.example.librarymanagement.service.SessionTokenService;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * HTTP 压测：分别以平台线程和虚拟线程启动应用，对 POST /api/borrow 和
+ * GET /api/books/search 施加固定并发的闭环负载，输出吞吐量和 p50/p95/p99 延迟。
+ *
+ * 运行：java -cp target/benchmarks.jar com.example.librarymanagement.benchmark.HttpLoadBenchmark
+ * 可选系统属性：load.clients（逗号分隔的并发数）、load.seconds（每组持续秒数）、load.books；
+ * 传入 -Dspring.datasource.url=... 等属性可改为压测真实 MySQL。
+ */
+public final class HttpLoadBenchmark {
+
+    private static final String USERNAME = "load-tester";
+
+    private HttpLoadBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] clients = Arrays.stream(System.getProperty("load.clients", "50,200,800").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        int seconds = Integer.getInteger("load.seconds", 10);
+        int books = Integer.getInteger("load.books", 10000);
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-9s %-8s %7s %10s %9s %9s %9s %7s",
+                "threads", "endpoint", "clients", "req/s", "p50(ms)", "p95(ms)", "p99(ms)", "errors"));
+        for (boolean virtual : new boolean[] { false, true }) {
+            try (EmbeddedLibrary library = EmbeddedLibrary.start(
+                    "--spring.main.web-application-type=servlet",
+                    "--server.port=0",
+                    "--spring.threads.virtual.enabled=" + virtual,
+                    "--spring.datasource.url=" + System.getProperty("spring.datasource.url",
+                            "jdbc:h2:mem:load_" + (virtual ? "virtual" : "platform") + ";DB_CLOSE_DELAY=-1"))) {
+                List<Long> bookIds = library.seedBooks(books, Integer.MAX_VALUE / 2);
+                Long userId = library.seedUser(USERNAME);
+                User user = library.bean(UserRepository.class).findById(userId).orElseThrow();
+                String token = library.bean(SessionTokenService.class).issue(user);
+                library.bean(BookService.class).rebuildSearchIndex();
+                String base = "http://localhost:" + library.port();
+                String mode = virtual ? "virtual" : "platform";
+                for (int n : clients) {
+                    // 预热一轮，结果丢弃
+                    run(n, Math.max(2, seconds / 5), () -> borrow(base, token, bookIds));
+                    report.add(run(n, seconds, () -> borrow(base, token, bookIds)).format(mode, "borrow", n));
+                    run(n, Math.max(2, seconds / 5), () -> search(base));
+                    report.add(run(n, seconds, () -> search(base)).format(mode, "search", n));
+                }
+            }
+        }
+        report.forEach(System.out::println);
+    }
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private static HttpRequest borrow(String base, String token, List<Long> bookIds) {
+        Long bookId = bookIds.get(ThreadLocalRandom.current().nextInt(bookIds.size()));
+        return HttpRequest.newBuilder(URI.create(base + "/api/borrow"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + USERNAME + "\",\"bookId\":" + bookId + "}"))
+                .build();
+    }
+
+    private static final String[] KEYWORDS = { "Java", "数据库", "第42", "Author 7", "算法 网", "Linux" };
+
+    private static HttpRequest search(String base) {
+        String keyword = KEYWORDS[ThreadLocalRandom.current().nextInt(KEYWORDS.length)];
+        return HttpRequest.newBuilder(URI.create(base + "/api/books/search?keyword="
+                        + URLEncoder.encode(keyword, StandardCharsets.UTF_8)))
+                .GET()
+                .build();
+    }
+
+    /**
+     * n 个客户端各自循环发送请求直到截止时间（闭环模型），汇总每个请求的延迟
+     */
+    private static Result run(int n, int seconds, RequestFactory factory) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Future<long[]>> futures = new ArrayList<>(n);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < n; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    long errors = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = CLIENT.send(factory.create(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors++;
+                            }
+                        } catch (Exception e) {
+                            errors++;
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                    long[] result = Arrays.copyOf(samples, count + 1);
+                    result[count] = errors;
+                    return result;
+                }));
+            }
+        }
+        Result result = new Result(seconds);
+        for (Future<long[]> future : futures) {
+            long[] samples = future.get();
+            result.errors += samples[samples.length - 1];
+            result.add(samples, samples.length - 1);
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest create();
+    }
+
+    private static final class Result {
+        private final int seconds;
+        private long[] latencies = new long[0];
+        private long errors;
+
+        Result(int seconds) {
+            this.seconds = seconds;
+        }
+
+        void add(long[] samples, int count) {
+            long[] merged = Arrays.copyOf(latencies, latencies.length + count);
+            System.arraycopy(samples, 0, merged, latencies.length, count);
+            latencies = merged;
+        }
+
+        String format(String mode, String endpoint, int clients) {
+            Arrays.sort(latencies);
+            return String.format("%-9s %-8s %7d %10.1f %9.2f %9.2f %9.2f %7d",
+                    mode, endpoint, clients, latencies.length / (double) seconds,
+                    percentile(0.50), percentile(0.95), percentile(0.99), errors);
+        }
+
+        private double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+            return latencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.librarymanagement.benchmark;
+
+import com.example.librarymanagement.entity.Book;
+import com.example.librarymanagement.entity.Borrowing;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制器返回的 Book / Borrowing 列表的 Jackson 序列化，ObjectMapper 配置与 Spring Boot 默认一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Book> books;
+    private List<Borrowing> borrowings;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        LocalDateTime now = LocalDateTime.now();
+        books = new ArrayList<>(size);
+        borrowings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Book book = new Book();
+            book.setBookId((long) i + 1);
+            book.setTitle("Java核心技术 卷" + i);
+            book.setAuthor("Cay S. Horstmann");
+            book.setIsbn(String.format("978-7-%09d", i));
+            book.setCategory("计算机");
+            book.setStock(i % 10);
+            book.setLocation("A-" + (i % 50));
+            books.add(book);
+
+            Borrowing borrowing = new Borrowing();
+            borrowing.setBorrowingId((long) i + 1);
+            borrowing.setUserId((long) (i % 100) + 1);
+            borrowing.setBookId(book.getBookId());
+            borrowing.setBorrowDate(now.minusDays(20));
+            borrowing.setDueDate(now.minusDays(6));
+            if (i % 2 == 0) {
+                borrowing.setReturnDate(now);
+                borrowing.setFine(BigDecimal.valueOf(3.0));
+            }
+            borrowings.add(borrowing);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeBooks() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] serializeBorrowings() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(borrowings);
+    }
+}
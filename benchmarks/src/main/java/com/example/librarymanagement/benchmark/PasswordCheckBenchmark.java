@@ -0,0 +1,45 @@
+package com.example.librarymanagement.benchmark;
+
+import com.example.librarymanagement.service.UserService;
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserService.checkPassword：不同 BCrypt cost 下单次校验耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordCheckBenchmark {
+
+    @Param({"4", "10", "12"})
+    public int cost;
+
+    private final UserService userService = new UserService();
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        hash = BCrypt.hashpw("password123", BCrypt.gensalt(cost));
+    }
+
+    @Benchmark
+    public boolean checkPassword() {
+        return userService.checkPassword("password123", hash);
+    }
+}
@@ -1,7 +1,26 @@
 import { createApp } from 'vue'
+import axios from 'axios'
 import App from './App.vue'
 import router from './router'
 
+// 登录后获得的会话令牌随每个请求发送
+axios.interceptors.request.use(config => {
+  const token = localStorage.getItem('token')
+  if (token) {
+    config.headers.Authorization = `Bearer ${token}`
+  }
+  return config
+})
+
+// 令牌失效或过期：清除登录状态并回到登录页
+axios.interceptors.response.use(response => response, error => {
+  if (error.response && error.response.status === 401) {
+    ['token', 'userId', 'username', 'role'].forEach(key => localStorage.removeItem(key))
+    router.push('/login')
+  }
+  return Promise.reject(error)
+})
+
 const app = createApp(App)
 app.use(router)
-app.mount('#app')
\ No newline at end of file
+app.mount('#app')